@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node indices keyed by their distances, with a position index so that the key of a node
+ * already in the heap can be decreased in O(log n).
+ * Nodes with equal keys leave the heap from the largest index down.
+ */
+public class IndexedMinHeap {
+    /** The key of every node, read from the array the heap was given. */
+    private final double[] keys;
+    /** The nodes in heap order. */
+    private final int[] heap;
+    /** The position of every node in the heap, -1 if it is not in the heap. */
+    private final int[] positions;
+    /** The number of nodes in the heap. */
+    private int count;
+
+    /**
+     * Constructs an empty heap over the given keys.
+     * @param keys The key of every node, a node has to be moved with {@link #decrease(int)} after its key dropped.
+     */
+    public IndexedMinHeap(double[] keys) {
+        this.keys = keys;
+        this.heap = new int[keys.length];
+        this.positions = new int[keys.length];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Checks if the heap is empty.
+     * @return true if no node is in the heap, false otherwise.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Adds a node to the heap, or moves it up if it is already in the heap and its key dropped.
+     * @param node The index of the node.
+     */
+    public void decrease(int node) {
+        int position = positions[node];
+        if (position < 0) {
+            position = count++;
+            heap[position] = node;
+            positions[node] = position;
+        }
+        siftUp(position);
+    }
+
+    /**
+     * Removes the node with the smallest key.
+     * @return The index of the node.
+     */
+    public int poll() {
+        int first = heap[0];
+        positions[first] = -1;
+        count--;
+        if (count > 0) {
+            heap[0] = heap[count];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return first;
+    }
+
+    /**
+     * Removes every node from the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            positions[heap[i]] = -1;
+        }
+        count = 0;
+    }
+
+    /**
+     * Moves the node at a position up until its parent is not larger.
+     * @param position The position of the node.
+     */
+    private void siftUp(int position) {
+        int node = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!less(node, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent]; // Move the parent down
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = node;
+        positions[node] = position;
+    }
+
+    /**
+     * Moves the node at a position down until none of its children is smaller.
+     * @param position The position of the node.
+     */
+    private void siftDown(int position) {
+        int node = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && less(heap[child + 1], heap[child])) {
+                child++; // Take the smaller child
+            }
+            if (!less(heap[child], node)) {
+                break;
+            }
+            heap[position] = heap[child]; // Move the child up
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = node;
+        positions[node] = position;
+    }
+
+    /**
+     * Compares two nodes by their keys, the larger index first on equal keys.
+     * @param a The index of the first node.
+     * @param b The index of the second node.
+     * @return true if the first node leaves the heap before the second one, false otherwise.
+     */
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a > b);
+    }
+}
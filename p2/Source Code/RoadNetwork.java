@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Road network stored once in compressed sparse row arrays: the roads of node i are found at
+ * [offsets[i], offsets[i + 1]) of the targets and lengths arrays, so a graph with millions of nodes takes
+ * a few arrays instead of an n x n matrix.
+ * Shortest paths are found with Dijkstra's algorithm over an indexed heap in O((V + E) log V), and the
+ * search state is reset only for the nodes a query reached, so a short query on a large graph stays cheap.
+ * The search visits the nodes in the same order as the matrix version it replaced, so both give the same path.
+ */
+public class RoadNetwork {
+    /** The number of nodes. */
+    public final int nodeCount;
+    /** Where the roads of every node start, the roads of node i end where those of node i + 1 start. */
+    private final int[] offsets;
+    /** The node every road leads to. */
+    private final int[] targets;
+    /** The length of every road. */
+    private final double[] lengths;
+    /** The shortest known distance to every node in the current query, infinity if it was not reached. */
+    private final double[] distances;
+    /** The node before every node on its shortest known path, -1 if there is none. */
+    private final int[] previous;
+    /** Whether the shortest distance of a node is final in the current query. */
+    private final boolean[] settled;
+    /** The reached nodes waiting to be settled. */
+    private final IndexedMinHeap queue;
+    /** The nodes reached by the current query, in the order they were reached. */
+    private final int[] reached;
+    /** The number of nodes reached by the current query. */
+    private int reachedCount;
+
+    /**
+     * A path found by {@link #shortestPath(int, int)}.
+     */
+    public static class Route {
+        /** The nodes of the path from the start to the destination, empty if there is no path. */
+        public final int[] nodes;
+        /** The total length of the path, infinity if there is no path. */
+        public final double distance;
+
+        /**
+         * Constructs a route.
+         * @param nodes The nodes of the path.
+         * @param distance The total length of the path.
+         */
+        public Route(int[] nodes, double distance) {
+            this.nodes = nodes;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Constructs a network from a list of two-way roads.
+     * Roads of length 0 are left out, as the matrix version read a length of 0 as no road.
+     * @param nodeCount The number of nodes.
+     * @param from The node every road starts at.
+     * @param to The node every road leads to.
+     * @param roadLengths The length of every road.
+     */
+    public RoadNetwork(int nodeCount, int[] from, int[] to, double[] roadLengths) {
+        this.nodeCount = nodeCount;
+
+        // Count the roads of every node, each road is stored in both directions
+        this.offsets = new int[nodeCount + 1];
+        for (int road = 0; road < from.length; road++) {
+            if (roadLengths[road] != 0) {
+                offsets[from[road] + 1]++;
+                offsets[to[road] + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+
+        // Place every road after the roads already placed for its node
+        this.targets = new int[offsets[nodeCount]];
+        this.lengths = new double[offsets[nodeCount]];
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        for (int road = 0; road < from.length; road++) {
+            if (roadLengths[road] != 0) {
+                targets[next[from[road]]] = to[road];
+                lengths[next[from[road]]++] = roadLengths[road];
+                targets[next[to[road]]] = from[road];
+                lengths[next[to[road]]++] = roadLengths[road];
+            }
+        }
+
+        this.distances = new double[nodeCount];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        this.previous = new int[nodeCount];
+        Arrays.fill(previous, -1);
+        this.settled = new boolean[nodeCount];
+        this.queue = new IndexedMinHeap(distances);
+        this.reached = new int[nodeCount];
+    }
+
+    /**
+     * Constructs a network of cities, city i of the list becomes node i and every connection becomes a road
+     * as long as the distance between the cities.
+     * @param cities The arraylist of cities on the map.
+     * @return The network of the cities.
+     */
+    public static RoadNetwork fromCities(ArrayList<City> cities) {
+        HashMap<City, Integer> indices = new HashMap<>(); // Index of every city, the first one if listed twice
+        for (int i = 0; i < cities.size(); i++) {
+            indices.putIfAbsent(cities.get(i), i);
+        }
+        int roadCount = 0;
+        for (City city : cities) {
+            roadCount += city.connections.size();
+        }
+        int[] from = new int[roadCount];
+        int[] to = new int[roadCount];
+        double[] roadLengths = new double[roadCount];
+        int road = 0;
+        for (City city : cities) {
+            for (City neighbor : city.connections) {
+                Integer neighborIndex = indices.get(neighbor);
+                if (neighborIndex != null) {
+                    from[road] = indices.get(city);
+                    to[road] = neighborIndex;
+                    roadLengths[road++] = city.distanceCalculator(city, neighbor);
+                }
+            }
+        }
+        return new RoadNetwork(cities.size(), Arrays.copyOf(from, road), Arrays.copyOf(to, road),
+                Arrays.copyOf(roadLengths, road));
+    }
+
+    /**
+     * Finds the shortest path between two nodes with Dijkstra's algorithm, stopping once the destination is settled.
+     * Of the nodes at the same distance the one with the largest index is settled first, and a node keeps the
+     * first path that reached it at its shortest distance. Not safe for concurrent queries on the same network.
+     * @param start The index of the starting node.
+     * @param destination The index of the destination node.
+     * @return The shortest path, with no nodes if the destination can not be reached.
+     */
+    public Route shortestPath(int start, int destination) {
+        reach(start, 0, -1);
+        while (!queue.isEmpty()) {
+            int node = queue.poll(); // The next closest unsettled node
+            settled[node] = true;
+            if (node == destination) {
+                break;
+            }
+
+            // Update the shortest distances of the unsettled neighbors
+            for (int road = offsets[node]; road < offsets[node + 1]; road++) {
+                int neighbor = targets[road];
+                double distance = distances[node] + lengths[road];
+                if (distance < distances[neighbor] && !settled[neighbor]) {
+                    reach(neighbor, distance, node);
+                }
+            }
+        }
+
+        Route route;
+        if (!settled[destination]) {
+            route = new Route(new int[0], Double.POSITIVE_INFINITY);
+        } else {
+            // Count the nodes of the path, then fill it backwards from the destination
+            int pathLength = 0;
+            for (int node = destination; node != -1; node = previous[node]) {
+                pathLength++;
+            }
+            int[] nodes = new int[pathLength];
+            for (int node = destination; node != -1; node = previous[node]) {
+                nodes[--pathLength] = node;
+            }
+            route = new Route(nodes, distances[destination]);
+        }
+        reset();
+        return route;
+    }
+
+    /**
+     * Records a shorter path to a node and moves the node in the queue.
+     * @param node The index of the node.
+     * @param distance The length of the path.
+     * @param from The node before it on the path, -1 for the start.
+     */
+    private void reach(int node, double distance, int from) {
+        if (distances[node] == Double.POSITIVE_INFINITY) {
+            reached[reachedCount++] = node; // Remember the node to reset it after the query
+        }
+        distances[node] = distance;
+        previous[node] = from;
+        queue.decrease(node);
+    }
+
+    /**
+     * Clears the search state of the nodes the last query reached.
+     */
+    private void reset() {
+        queue.clear();
+        for (int i = 0; i < reachedCount; i++) {
+            int node = reached[i];
+            distances[node] = Double.POSITIVE_INFINITY;
+            previous[node] = -1;
+            settled[node] = false;
+        }
+        reachedCount = 0;
+    }
+}
@@ -1,7 +1,7 @@
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Scanner;
 
 /**
@@ -45,6 +45,7 @@ public class YukselEgeBoyaci {
 
         //Create an Arraylist for city objects.
         ArrayList<City> cities = new ArrayList<>();
+        HashMap<String, City> citiesByName = new HashMap<>(); // Find cities by name without scanning the list
 
         // Read city info from the first file,
         // Create city objects and store it in an Arraylist
@@ -60,6 +61,7 @@ public class YukselEgeBoyaci {
             // Create an instance of the City class with the name and coordinate values.
             City city = new City(cityName, xCoord, yCoord);
             cities.add(city); // Add the city object in the cities Arraylist.
+            citiesByName.put(cityName, city); // A later city with the same name replaces the earlier one
         }
 
         inputFileOne.close(); // Close the first file
@@ -75,18 +77,11 @@ public class YukselEgeBoyaci {
             String secondCity = lines[1].trim();
 
             // Get the city objects that have the names of connected cities
-            City city1 = null;
-            City city2 = null;
-            for (City city : cities) {
-                if (city.cityName.equals(firstCity)) {
-                    city1 = city;
-                } else if (city.cityName.equals(secondCity)) {
-                    city2 = city;
-                }
-            }
+            City city1 = citiesByName.get(firstCity);
+            City city2 = citiesByName.get(secondCity);
 
             // Add connection
-            if (city1 != null && city2 != null) {
+            if (city1 != null && city2 != null && city1 != city2) {
                 city1.connections.add(city2);
             }
         }
@@ -132,8 +127,10 @@ public class YukselEgeBoyaci {
             }
         }
 
-        // Retrieve cities that are within the shortest path and store them in the shortestPath Arraylist.
-        ArrayList<City> shortestPath = shortestPathFinder(startingCity, destinationCity, cities);
+        // Store the road network once, then retrieve cities that are within the shortest path
+        // and store them in the shortestPath Arraylist.
+        RoadNetwork network = RoadNetwork.fromCities(cities);
+        ArrayList<City> shortestPath = shortestPathFinder(startingCity, destinationCity, cities, network);
 
         StdDraw.setCanvasSize(2377 / 2, 1055 / 2); // Set canvas size
         StdDraw.setXscale(0, 2377); // Set X and Y scales.
@@ -202,6 +199,8 @@ public class YukselEgeBoyaci {
 
     /**
      * Finds the shortest path between two cities on the map.
+     * The road network is built from the connections of the cities for this query only,
+     * use {@link #shortestPathFinder(City, City, ArrayList, RoadNetwork)} to answer many queries on one network.
      *
      * @param startingCity    The starting city.
      * @param destinationCity The destination city.
@@ -210,104 +209,41 @@ public class YukselEgeBoyaci {
      */
 
     public static ArrayList<City> shortestPathFinder(City startingCity, City destinationCity, ArrayList<City> cities) {
-        // Initialize variables
-        int numberOfLocations = cities.size(); // Set the number of cities from the length of the cities ArrayList
-        double[][] map = new double[numberOfLocations][numberOfLocations]; // Set 2D array for the map
-        double maxVal = Double.MAX_VALUE; // Set the maximum value
-
-        // Initialize arrays for shortest distances, visited cities, and shortest path cities
-        double[] shortestDistances = new double[numberOfLocations];
-        Arrays.fill(shortestDistances, maxVal); // Fill the array with the maximum value
-        shortestDistances[indexFinder(cities, startingCity)] = 0; // Set the distance of the starting city to zero
-
-        int cityIndex;
-        int neighborCityIndex = -1;
-
-        // Construct the map with distances between cities
-        for (City city : cities) {
-            cityIndex = indexFinder(cities, city);
-            City neighborCity = null;
-            for (City neighbor : city.connections) {
-                for (int j = 0; j < cities.size(); j++) {
-                    if (cities.get(j).equals(neighbor)) {
-                        neighborCity = cities.get(j);
-                        neighborCityIndex = j;
-                        break;
-                    }
-                }
-                if (neighborCity != null) {
-                    double distance = city.distanceCalculator(city, neighborCity);
-                    map[cityIndex][neighborCityIndex] = distance;
-                    map[neighborCityIndex][cityIndex] = distance;
-                }
-            }
-        }
+        return shortestPathFinder(startingCity, destinationCity, cities, RoadNetwork.fromCities(cities));
+    }
 
-        // Initialize arrays for visited cities and shortest path cities
-        boolean[] visited = new boolean[numberOfLocations]; // Set an array to check if a city is visited
-        int[] shortestPathCities = new int[numberOfLocations];
-        Arrays.fill(shortestPathCities, -1); // Fill the array with -1
+    /**
+     * Finds the shortest path between two cities on a road network built from the cities,
+     * and prints its total distance and the cities along it.
+     *
+     * @param startingCity    The starting city.
+     * @param destinationCity The destination city.
+     * @param cities          The arraylist of cities on the map.
+     * @param network         The road network of the cities, city i of the list is node i.
+     * @return The shortest path between the starting and destination cities.
+     */
 
+    public static ArrayList<City> shortestPathFinder(City startingCity, City destinationCity, ArrayList<City> cities,
+                                                     RoadNetwork network) {
         // Find the shortest path using Dijkstra's algorithm
-        for (int count = 0; count < numberOfLocations - 1; count++) {
-            double min = 999999999.9;
-            int minIndex = -1;
-
-            // Find the next closest unvisited city
-            for (int location = 0; location < shortestDistances.length; location++) {
-                if (!visited[location] && shortestDistances[location] <= min) {
-                    min = shortestDistances[location];
-                    minIndex = location;
-                }
-            }
-            visited[minIndex] = true;
-
-            // If the destination city is reached, stop the algorithm
-            if (minIndex == indexFinder(cities, destinationCity)) {
-                break;
-            }
+        RoadNetwork.Route route = network.shortestPath(indexFinder(cities, startingCity),
+                indexFinder(cities, destinationCity));
 
-            // Update shortest distance and shortest path cities
-            for (int neighborIndex = 0; neighborIndex < numberOfLocations; neighborIndex++) {
-                if (shortestDistances[minIndex] + map[minIndex][neighborIndex] < shortestDistances[neighborIndex]
-                        && !visited[neighborIndex] && map[minIndex][neighborIndex] != 0
-                        && shortestDistances[minIndex] != maxVal) {
-
-                    shortestDistances[neighborIndex] = shortestDistances[minIndex] + map[minIndex][neighborIndex];
-                    shortestPathCities[neighborIndex] = minIndex;
-                }
-            }
-        }
-
-        // Reconstruct the shortest path
         ArrayList<City> shortestPath = new ArrayList<>();
 
         // If there is no optimal path, specify that there's no path
-        if (shortestDistances[indexFinder(cities, destinationCity)] == Double.MAX_VALUE) {
+        if (route.nodes.length == 0) {
             System.out.println("No path could be found.");
             return shortestPath;
         }
 
-        // Starting from the destination city, construct the shortest path backwards
-        int shortestPathCity = indexFinder(cities, destinationCity);
-        while (shortestPathCity != -1) {
-            shortestPath.add(cities.get(shortestPathCity));
-            shortestPathCity = shortestPathCities[shortestPathCity];
-        }
-
-        // Reverse the shortest path
-        int start = 0;
-        int end = shortestPath.size() - 1;
-        while (start < end) {
-            City city = shortestPath.get(start);
-            shortestPath.set(start, shortestPath.get(end));
-            shortestPath.set(end, city);
-            start++;
-            end--;
+        // Retrieve the cities along the path
+        for (int node : route.nodes) {
+            shortestPath.add(cities.get(node));
         }
 
         // Print the total distance and path
-        System.out.printf("Total Distance: %.2f. Path: ", shortestDistances[indexFinder(cities, destinationCity)]);
+        System.out.printf("Total Distance: %.2f. Path: ", route.distance);
         int i1 = 0;
         int i2 = shortestPath.size() - 1;
         while (i1 < i2) {
@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * A named set of houses that the benchmarks run on, either read from a test case
+ * or generated from a fixed seed so every run measures the same instance.
+ * Generated houses lie in the unit square like the houses of the test cases.
+ */
+public class BenchmarkInstance {
+
+    /** Largest instance whose optimal tour length is computed as the quality reference */
+    private static final int MAX_REFERENCE_SIZE = 30;
+
+    /** Name shown in the results */
+    final String name;
+
+    /** The houses */
+    final ArrayList<House> houses;
+
+    /** Length of the optimal tour, NaN until computed or when the instance is too large */
+    private double reference = Double.NaN;
+
+    /** Whether the reference length was computed already */
+    private boolean referenceComputed;
+
+    /**
+     * Constructs an instance.
+     *
+     * @param name   Name shown in the results
+     * @param houses The houses
+     */
+    BenchmarkInstance(String name, ArrayList<House> houses) {
+        this.name = name;
+        this.houses = houses;
+    }
+
+    /**
+     * Returns the number of houses.
+     *
+     * @return The number of houses
+     */
+    int size() {
+        return houses.size();
+    }
+
+    /**
+     * Reads an instance from a coordinate file.
+     *
+     * @param path The file
+     * @return The instance, named after the file
+     * @throws IOException if the file cannot be read
+     */
+    static BenchmarkInstance fromFile(Path path) throws IOException {
+        Coordinates coordinates = Coordinates.read(path);
+        ArrayList<House> houses = new ArrayList<>(coordinates.size());
+        for (int i = 0; i < coordinates.size(); i++) {
+            houses.add(new House(coordinates.xs[i], coordinates.ys[i], i + 1));
+        }
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return new BenchmarkInstance(dot > 0 ? name.substring(0, dot) : name, houses);
+    }
+
+    /**
+     * Generates houses spread uniformly over the unit square.
+     *
+     * @param size Number of houses
+     * @param seed Seed of the generator
+     * @return The instance
+     */
+    static BenchmarkInstance uniform(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        ArrayList<House> houses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            houses.add(new House(random.nextDouble(), random.nextDouble(), i + 1));
+        }
+        return new BenchmarkInstance("uniform-" + size, houses);
+    }
+
+    /**
+     * Generates houses in normally distributed clusters around uniformly placed centres,
+     * about one cluster per hundred houses, clipped to the unit square.
+     *
+     * @param size Number of houses
+     * @param seed Seed of the generator
+     * @return The instance
+     */
+    static BenchmarkInstance clustered(int size, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int clusterCount = Math.max(1, size / 100);
+        double[] centreXs = new double[clusterCount];
+        double[] centreYs = new double[clusterCount];
+        for (int c = 0; c < clusterCount; c++) {
+            centreXs[c] = random.nextDouble();
+            centreYs[c] = random.nextDouble();
+        }
+        double spread = 0.5 / Math.sqrt(clusterCount) / 3;
+        ArrayList<House> houses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int c = random.nextInt(clusterCount);
+            double x = Math.min(1, Math.max(0, centreXs[c] + spread * random.nextGaussian()));
+            double y = Math.min(1, Math.max(0, centreYs[c] + spread * random.nextGaussian()));
+            houses.add(new House(x, y, i + 1));
+        }
+        return new BenchmarkInstance("clustered-" + size, houses);
+    }
+
+    /**
+     * Returns the optimal tour length, computed once with the branch and bound solver
+     * for instances of up to 30 houses.
+     *
+     * @return The optimal tour length, or NaN for larger instances
+     */
+    double reference() {
+        if (!referenceComputed) {
+            referenceComputed = true;
+            if (size() <= MAX_REFERENCE_SIZE) {
+                BranchAndBound solver = new BranchAndBound(size(), AntColony.distanceMatrix(houses));
+                solver.solve();
+                reference = solver.bestLength();
+            }
+        }
+        return reference;
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput of benchmark operations in the style of JMH.
+ * Every benchmark runs warm-up iterations first so the JIT compiler has settled, then measurement iterations
+ * of a fixed duration. Operations are called in batches that grow until a batch takes about 1% of an
+ * iteration, which keeps the cost of reading the clock out of short operations.
+ * Besides the throughput every result reports what the JMH GC profiler would: bytes allocated per operation
+ * across all threads, and the number and duration of garbage collections. Operations that return
+ * tour lengths also report the best and mean length and the gap to the optimal length when it is known.
+ */
+public class BenchmarkRunner {
+
+    /** Number of warm-up iterations */
+    private final int warmupIterations;
+
+    /** Number of measured iterations */
+    private final int measurementIterations;
+
+    /** Duration of every iteration in nanoseconds */
+    private final long iterationNanos;
+
+    /** Substring a benchmark name must contain to run, empty to run all */
+    private final String filter;
+
+    /** Stream the results are also written to as CSV, null if not wanted */
+    private final PrintStream csv;
+
+    /** Thread bean used to read the allocated bytes */
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Sum of all operation results, printed at the end so no operation can be optimized away */
+    private double sink;
+
+    /**
+     * Constructs a runner.
+     *
+     * @param warmupIterations      Number of warm-up iterations
+     * @param measurementIterations Number of measured iterations
+     * @param iterationMillis       Duration of every iteration in milliseconds
+     * @param filter                Substring a benchmark name must contain to run
+     * @param csv                   Stream the results are also written to as CSV, or null
+     */
+    BenchmarkRunner(int warmupIterations, int measurementIterations, long iterationMillis, String filter,
+                    PrintStream csv) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.filter = filter;
+        this.csv = csv;
+        if (csv != null) {
+            csv.println("benchmark,instance,size,ops_per_s,error,bytes_per_op,gc_count,gc_ms,best_length,"
+                    + "mean_length,gap_percent");
+        }
+    }
+
+    /**
+     * Checks whether a benchmark passes the filter.
+     *
+     * @param benchmark Name of the benchmark
+     * @return true if it should run
+     */
+    boolean selected(String benchmark) {
+        return benchmark.contains(filter);
+    }
+
+    /**
+     * Runs and reports a benchmark if it passes the filter.
+     *
+     * @param benchmark   Name of the benchmark
+     * @param instance    The instance it runs on
+     * @param tourLengths Whether the operation returns tour lengths
+     * @param setup       Prepares the state of the benchmark and returns the operation to measure
+     */
+    void run(String benchmark, BenchmarkInstance instance, boolean tourLengths, Supplier<DoubleSupplier> setup) {
+        if (!selected(benchmark)) {
+            return;
+        }
+        DoubleSupplier operation = setup.get();
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, null);
+        }
+
+        double[] scores = new double[measurementIterations];
+        double[] lengths = tourLengths ? new double[]{Double.MAX_VALUE, 0} : null;
+        long operations = 0;
+        long gcCount = -gcCount();
+        long gcMillis = -gcMillis();
+        long allocated = -threads.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < measurementIterations; i++) {
+            long start = System.nanoTime();
+            long count = iteration(operation, lengths);
+            scores[i] = count * 1e9 / (System.nanoTime() - start);
+            operations += count;
+        }
+        allocated += threads.getTotalThreadAllocatedBytes();
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+
+        double mean = 0;
+        for (double score : scores) {
+            mean += score / measurementIterations;
+        }
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean) / Math.max(1, measurementIterations - 1);
+        }
+        double error = Math.sqrt(variance);
+        double bytesPerOperation = (double) allocated / operations;
+
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT,
+                "%-28s %-14s %14.3f +- %10.3f ops/s %12.1f B/op %4d gc %6d ms",
+                benchmark, instance.name, mean, error, bytesPerOperation, gcCount, gcMillis));
+        double best = Double.NaN;
+        double meanLength = Double.NaN;
+        double gap = Double.NaN;
+        if (tourLengths) {
+            best = lengths[0];
+            meanLength = lengths[1] / operations;
+            gap = (best / instance.reference() - 1) * 100;
+            line.append(String.format(Locale.ROOT, "   best %.5f mean %.5f", best, meanLength));
+            if (!Double.isNaN(gap)) {
+                line.append(String.format(Locale.ROOT, " gap %.2f%%", gap));
+            }
+        }
+        System.out.println(line);
+        if (csv != null) {
+            csv.println(String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.3f,%.1f,%d,%d,%.6f,%.6f,%.3f",
+                    benchmark, instance.name, instance.size(), mean, error, bytesPerOperation, gcCount, gcMillis,
+                    best, meanLength, gap));
+            csv.flush();
+        }
+    }
+
+    /**
+     * Runs the operation in growing batches until the iteration time has passed.
+     *
+     * @param operation The operation
+     * @param lengths   Best and summed tour length to update, null if not wanted
+     * @return Number of operations that were run
+     */
+    private long iteration(DoubleSupplier operation, double[] lengths) {
+        long start = System.nanoTime();
+        long elapsed = 0;
+        long count = 0;
+        long batch = 1;
+        while (elapsed < iterationNanos) {
+            long batchStart = System.nanoTime();
+            for (long i = 0; i < batch; i++) {
+                double result = operation.getAsDouble();
+                sink += result;
+                if (lengths != null) {
+                    lengths[0] = Math.min(lengths[0], result);
+                    lengths[1] += result;
+                }
+            }
+            long now = System.nanoTime();
+            count += batch;
+            if (now - batchStart < iterationNanos / 100) {
+                batch *= 2;
+            }
+            elapsed = now - start;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the value every operation result was added to, so their computations cannot be dropped.
+     *
+     * @return Sum of all results
+     */
+    double sink() {
+        return sink;
+    }
+
+    /**
+     * Returns the number of garbage collections since the start of the virtual machine.
+     *
+     * @return The total collection count of all collectors
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the time spent in garbage collection since the start of the virtual machine.
+     *
+     * @return The total collection time of all collectors in milliseconds
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark suite of the TSP solvers: tour construction, the transition rule, pheromone updates
+ * and the full solvers, on the test cases and on seeded uniform and clustered instances.
+ * Compile it together with the sources and run it from the p3 folder:
+ * <pre>
+ * javac -d out "Source Code"/*.java Benchmarks/*.java
+ * java -cp out Benchmarks [options]
+ * </pre>
+ * To measure the vectorized kernels, also compile Vector/VectorKernels.java as described in {@link Kernels}
+ * and add {@code --add-modules jdk.incubator.vector} to the java command.
+ * Options:
+ * <ul>
+ *     <li>{@code --filter name}: only run benchmarks whose name contains this text</li>
+ *     <li>{@code --sizes 10,100,1000,10000,100000}: sizes of the generated instances</li>
+ *     <li>{@code --testcases Testcases}: folder of the test cases, every file in it is used</li>
+ *     <li>{@code --warmup 3}, {@code --iterations 5}, {@code --time 1000}: iteration counts and duration in ms</li>
+ *     <li>{@code --seed 1}: seed of the generated instances and the ants</li>
+ *     <li>{@code --csv results.csv}: also write the results as CSV, to compare engine changes</li>
+ * </ul>
+ * Benchmarks whose matrices do not fit in the heap are skipped with a note,
+ * larger instances switch to the float triangle matrix storage first.
+ */
+public class Benchmarks {
+
+    /** Largest instance the full O(n^2) tour construction and transition rule are measured on */
+    private static final int MAX_FULL_CONSTRUCTION_SIZE = 5_000;
+
+    /** Largest instance the default Ant Colony Optimization configuration is solved for */
+    private static final int MAX_DEFAULT_ACO_SIZE = 200;
+
+    /** Largest instance the colony with local search is solved for, 200 improved tours take minutes beyond it */
+    private static final int MAX_LOCAL_SEARCH_ACO_SIZE = 10_000;
+
+    /** Largest instance the Held-Karp solver is measured on */
+    private static final int MAX_HELD_KARP_SIZE = 16;
+
+    /** Largest instance the branch and bound solver is measured on */
+    private static final int MAX_BRANCH_AND_BOUND_SIZE = 30;
+
+    /** Largest instance the brute-force solver is measured on */
+    private static final int MAX_BRUTE_FORCE_SIZE = 12;
+
+    /** Number of nearest neighbours used by the candidate list benchmarks */
+    private static final int CANDIDATE_COUNT = 15;
+
+    /** Number of nearest neighbours used by the local search benchmarks */
+    private static final int LOCAL_SEARCH_NEIGHBOURS = 10;
+
+    /** Seed of the generated instances and the ants */
+    private static long seed = 1;
+
+    /** Runner that measures and reports every benchmark */
+    private static BenchmarkRunner runner;
+
+    /**
+     * Runs the benchmark suite.
+     *
+     * @param args Options, see the class description
+     * @throws IOException if a test case or the CSV file cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        String filter = "";
+        String sizes = "10,100,1000,10000,100000";
+        Path testcases = Path.of("Testcases");
+        int warmup = 3;
+        int iterations = 5;
+        long time = 1000;
+        PrintStream csv = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--filter" -> filter = value;
+                case "--sizes" -> sizes = value;
+                case "--testcases" -> testcases = Path.of(value);
+                case "--warmup" -> warmup = Integer.parseInt(value);
+                case "--iterations" -> iterations = Integer.parseInt(value);
+                case "--time" -> time = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--csv" -> csv = new PrintStream(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        runner = new BenchmarkRunner(warmup, iterations, time, filter, csv);
+        System.out.println("Array kernels: " + Kernels.INSTANCE.name());
+
+        ArrayList<BenchmarkInstance> instances = new ArrayList<>();
+        if (Files.isDirectory(testcases)) {
+            ArrayList<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(testcases)) {
+                stream.forEach(files::add);
+            }
+            files.sort(null);
+            for (Path file : files) {
+                instances.add(BenchmarkInstance.fromFile(file));
+            }
+        } else {
+            System.out.println("Test case folder " + testcases + " not found, using generated instances only");
+        }
+        for (String size : sizes.split(",")) {
+            instances.add(BenchmarkInstance.uniform(Integer.parseInt(size.trim()), seed));
+            instances.add(BenchmarkInstance.clustered(Integer.parseInt(size.trim()), seed));
+        }
+
+        for (BenchmarkInstance instance : instances) {
+            runAll(instance);
+        }
+        if (csv != null) {
+            csv.close();
+        }
+        System.out.println("(sink " + runner.sink() + ")");
+    }
+
+    /**
+     * Runs every benchmark that applies to an instance.
+     *
+     * @param instance The instance
+     */
+    private static void runAll(BenchmarkInstance instance) {
+        int size = instance.size();
+        runColonyBenchmarks(instance, storageFor(size));
+        if (size <= MAX_HELD_KARP_SIZE) {
+            runner.run("solve.heldKarp", instance, true, () -> () -> {
+                HeldKarp solver = new HeldKarp(size, AntColony.distanceMatrix(instance.houses));
+                solver.solve();
+                return solver.bestLength;
+            });
+        }
+        if (size <= MAX_BRANCH_AND_BOUND_SIZE) {
+            runner.run("solve.branchAndBound", instance, true, () -> () -> {
+                BranchAndBound solver = new BranchAndBound(size, AntColony.distanceMatrix(instance.houses));
+                solver.solve();
+                return solver.bestLength();
+            });
+        }
+        if (size <= MAX_BRUTE_FORCE_SIZE) {
+            runner.run("solve.bruteForce", instance, true, () -> () -> {
+                BruteForce solver = new BruteForce(size, AntColony.distanceMatrix(instance.houses));
+                solver.solve();
+                return solver.bestLength;
+            });
+        }
+    }
+
+    /**
+     * Runs the benchmarks of the Ant Colony Optimization engine. The colonies with candidate lists only store
+     * n k entries per matrix, so they are measured on every instance, the others only when a storage fits.
+     *
+     * @param instance The instance
+     * @param storage  Matrix storage that fits the instance in the heap, null if none does
+     */
+    private static void runColonyBenchmarks(BenchmarkInstance instance, MatrixStorage storage) {
+        int size = instance.size();
+        if (storage == null) {
+            System.out.printf("%-28s %-14s skipped, the full colony matrices do not fit in the heap%n", "*",
+                    instance.name);
+        } else if (size <= MAX_FULL_CONSTRUCTION_SIZE) {
+            runner.run("colony.build", instance, false, () -> () -> {
+                // Distance, heuristic and choice info matrices
+                AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, storage);
+                return colony.size;
+            });
+            runner.run("construct.full", instance, true, () -> {
+                AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, storage);
+                Ant ant = colony.newAnt();
+                SplittableRandom random = new SplittableRandom(seed);
+                return () -> colony.constructTour(ant, random);
+            });
+            runner.run("select.next", instance, false, () -> {
+                AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, storage);
+                Ant ant = colony.newAnt();
+                SplittableRandom random = new SplittableRandom(seed);
+                return () -> {
+                    // Choose among every house but the current one, as on the first step of a tour
+                    int current = random.nextInt(size);
+                    for (int i = 0, j = 0; i < size; i++) {
+                        if (i != current) {
+                            ant.unvisited[j++] = i;
+                        }
+                    }
+                    return colony.selectNextHouse(ant, current, size - 1, random);
+                };
+            });
+        }
+        runner.run("construct.candidates", instance, true, () -> {
+            AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, CANDIDATE_COUNT);
+            Ant ant = colony.newAnt();
+            SplittableRandom random = new SplittableRandom(seed);
+            return () -> colony.constructTour(ant, random);
+        });
+        runner.run("construct.localSearch", instance, true, () -> {
+            AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, CANDIDATE_COUNT);
+            colony.useLocalSearch(LOCAL_SEARCH_NEIGHBOURS);
+            Ant ant = colony.newAnt();
+            SplittableRandom random = new SplittableRandom(seed);
+            return () -> colony.constructTour(ant, random);
+        });
+        runner.run("pheromone.update", instance, false, () -> {
+            AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, CANDIDATE_COUNT);
+            Ant ant = colony.newAnt();
+            double length = colony.constructTour(ant, new SplittableRandom(seed));
+            return () -> {
+                colony.updatePheromones(ant.tour, length, 0.0001);
+                return length;
+            };
+        });
+        if (storage != null) {
+            runner.run("pheromone.evaporate", instance, false, () -> {
+                AntColony colony = new AntColony(instance.houses, 1.8, 2.5, 0.1, storage);
+                double[] factor = {0.92};
+                return () -> {
+                    // Alternate between evaporating and restoring so the levels never become subnormal
+                    colony.evaporatePheromones(factor[0]);
+                    factor[0] = 1 / factor[0];
+                    return factor[0];
+                };
+            });
+        }
+        if (size <= MAX_DEFAULT_ACO_SIZE) {
+            runner.run("solve.aco", instance, true, () -> () -> {
+                // Ant System with the parameters of the main program: 100 iterations of 50 ants
+                SolverConfig config = new SolverConfig();
+                config.storage = storage;
+                return solve(instance, config);
+            });
+        }
+        if (size <= MAX_LOCAL_SEARCH_ACO_SIZE) {
+            runner.run("solve.acoMaxMinLocalSearch", instance, true,
+                    () -> () -> solve(instance, localSearchConfig(false)));
+            runner.run("solve.acoParallel", instance, true, () -> () -> solve(instance, localSearchConfig(true)));
+        }
+    }
+
+    /**
+     * Returns the parameters of the MAX-MIN colony with candidate lists and local search: 20 iterations of 10 ants.
+     *
+     * @param parallel Whether the ants of each iteration are built on every processor
+     * @return The parameters
+     */
+    private static SolverConfig localSearchConfig(boolean parallel) {
+        SolverConfig config = new SolverConfig();
+        config.variant = ColonyVariant.MAX_MIN;
+        config.candidateCount = CANDIDATE_COUNT;
+        config.localSearchNeighbours = LOCAL_SEARCH_NEIGHBOURS;
+        config.iterationCount = 20;
+        config.antCountPerIteration = 10;
+        config.parallel = parallel;
+        return config;
+    }
+
+    /**
+     * Solves an instance with the solver of the main program and the batch mode, seeded with the benchmark seed.
+     *
+     * @param instance The instance
+     * @param config   Parameters of the run, the seed is overwritten
+     * @return Length of the best tour found
+     */
+    private static double solve(BenchmarkInstance instance, SolverConfig config) {
+        config.seed = seed;
+        AcoSolver solver = new AcoSolver(instance.houses, config);
+        solver.solve();
+        return solver.bestLength;
+    }
+
+    /**
+     * Chooses the matrix storage for an instance: the full layout when its three matrices take at most half
+     * of the maximum heap, otherwise the float triangle layout if that fits.
+     *
+     * @param size Number of houses
+     * @return The storage, or null if neither fits
+     */
+    private static MatrixStorage storageFor(int size) {
+        double budget = Runtime.getRuntime().maxMemory() / 2.0;
+        double entries = (double) size * size;
+        if (3 * 8 * entries <= budget) {
+            return MatrixStorage.FULL;
+        }
+        if (3 * 2 * entries <= budget && SymmetricMatrix.triangleLength(size) < Integer.MAX_VALUE - 8) {
+            return MatrixStorage.FLOAT_TRIANGLE;
+        }
+        return null;
+    }
+}
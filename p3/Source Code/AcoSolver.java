@@ -0,0 +1,319 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * One run of the Ant Colony Optimization method on one set of houses.
+ * All state of the run is kept in the instance, so several runs can share a virtual machine
+ * and run at the same time on different threads.
+ */
+public class AcoSolver {
+
+    /** Parameters of the run */
+    private final SolverConfig config;
+
+    /** The colony holding the distances and pheromones */
+    final AntColony colony;
+
+    /** Records the iterations and decides when to stop */
+    final ConvergenceMonitor monitor;
+
+    /** Length of the best tour after solving */
+    double bestLength = Double.MAX_VALUE;
+
+    /** The islands of the island model, null for a single colony */
+    private final IslandColonies islands;
+
+    /** Listeners notified of every improved tour */
+    private final ArrayList<TourListener> tourListeners = new ArrayList<>();
+
+    /** Length of the last tour passed to the listeners */
+    private double publishedLength = Double.MAX_VALUE;
+
+    /** The state the run continues from, null for a new run */
+    private final Checkpoint resumed;
+
+    /**
+     * Precomputes distances and heuristics and initializes the pheromone levels.
+     * If the parameters ask to resume and the checkpoint file exists, the run continues from the saved state
+     * with the saved parameters instead.
+     *
+     * @param houses List of houses
+     * @param config Parameters of the run
+     * @throws UncheckedIOException     if the checkpoint cannot be read
+     * @throws IllegalArgumentException if the checkpoint does not fit the houses, or the island model is
+     *                                  combined with checkpoints
+     */
+    AcoSolver(ArrayList<House> houses, SolverConfig config) {
+        try {
+            Path checkpointFile = config.checkpointFile == null ? null : Path.of(config.checkpointFile);
+            this.resumed = config.resume && checkpointFile != null && Files.exists(checkpointFile)
+                    ? Checkpoint.read(checkpointFile, config) : null;
+            if (resumed != null) {
+                config = resumed.config;
+            }
+            if (checkpointFile != null && config.islandCount > 1) {
+                throw new IllegalArgumentException("Checkpoints are not supported with the island model");
+            }
+            this.config = config;
+            if (config.islandCount > 1) {
+                // The first island stands in for the whole run in the statistics and the pheromone map
+                this.islands = new IslandColonies(houses, config);
+                this.colony = islands.colonies[0];
+            } else {
+                this.islands = null;
+                this.colony = buildColony(houses, config);
+            }
+            this.monitor = newMonitor(colony, config);
+            if (resumed != null) {
+                resumed.restore(checkpointFile, colony);
+                monitor.resume(resumed.iteration, resumed.bestLength, resumed.stalledIterations);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Continues on a colony that already holds trails, for example one warm-started from a previous run.
+     * The best tour of the colony, if it has one, is the tour the run has to beat.
+     *
+     * @param colony The colony to run
+     * @param config Parameters of the run, the island model is not used
+     */
+    AcoSolver(AntColony colony, SolverConfig config) {
+        this.config = config;
+        this.resumed = null;
+        this.islands = null;
+        this.colony = colony;
+        this.monitor = newMonitor(colony, config);
+    }
+
+    /**
+     * Creates the monitor that records the metrics of every iteration and stops early once a stopping rule applies.
+     *
+     * @param colony The colony whose iterations are reported
+     * @param config Parameters of the run
+     * @return The monitor
+     */
+    private static ConvergenceMonitor newMonitor(AntColony colony, SolverConfig config) {
+        ConvergenceMonitor monitor = new ConvergenceMonitor(colony);
+        monitor.stopAfterStall(config.stallIterations);
+        monitor.stopAtLength(config.targetDistance);
+        monitor.stopAfterMillis(config.timeBudgetMillis);
+        if (config.telemetryFile != null) {
+            // The exported metrics include the pheromone statistics, which are skipped otherwise
+            monitor.computeStatisticsEvery(1);
+        }
+        return monitor;
+    }
+
+    /**
+     * Constructs a colony with the evaporation, variant, candidate lists, local search and warm start
+     * of the given parameters.
+     *
+     * @param houses List of houses
+     * @param config Parameters of the colony
+     * @return The colony
+     */
+    static AntColony buildColony(ArrayList<House> houses, SolverConfig config) {
+        AntColony colony = new AntColony(houses, config.alpha, config.beta, config.initialPheromone, config.storage,
+                config.candidateCount);
+        if (config.lazyEvaporation) {
+            colony.useLazyEvaporation();
+        }
+        if (config.localSearchNeighbours > 0) {
+            colony.useLocalSearch(config.localSearchNeighbours);
+        }
+        if (config.variant == ColonyVariant.MAX_MIN) {
+            colony.useMaxMin(0.05, 5);
+        } else if (config.variant == ColonyVariant.ANT_COLONY_SYSTEM) {
+            colony.useAntColonySystem(0.9, 0.1);
+        }
+        if (config.warmStart != null && colony.size > 0) {
+            int[] tour = new InitialTour(colony.xs, colony.ys).build(config.warmStart);
+            colony.warmStart(tour, config.antCountPerIteration, config.Q, config.degradationFactor,
+                    config.warmStartBias);
+        }
+        return colony;
+    }
+
+    /**
+     * Adds a listener that receives every improved tour at the end of the iteration that found it.
+     *
+     * @param listener The listener
+     */
+    void addTourListener(TourListener listener) {
+        tourListeners.add(listener);
+    }
+
+    /**
+     * Runs the iterations until the iteration count is reached or a stopping rule applies.
+     * The deadline and cancellation of the monitor are also checked between the ants of an iteration,
+     * which then ends with the tours built so far, so the run stops about one tour after the deadline.
+     *
+     * @return The best tour found, as house indices
+     */
+    int[] solve() {
+        int iterationCount = config.iterationCount;
+        int antCountPerIteration = config.antCountPerIteration;
+        double degradationFactor = config.degradationFactor;
+        double Q = config.Q;
+        int[] bestTour = new int[colony.size];
+        int firstIteration = resumed != null ? resumed.iteration : 0;
+
+        if (islands != null) {
+            // Iterations of the island model, the islands migrate on their own schedule
+            islands.stopWhen(monitor::interrupted);
+            try {
+                for (int iteration = 0; iteration < iterationCount; iteration++) {
+                    double iterationBest = islands.runIteration();
+                    if (iterationFinished(iteration, iterationBest, islands.bestTour, islands.bestLength, null)) {
+                        break;
+                    }
+                }
+            } finally {
+                islands.shutdown();
+            }
+            bestLength = islands.bestLength;
+            bestTour = islands.bestTour;
+        } else if (config.parallel) {
+            // Iterations of the parallel Ant Colony Optimization algorithm
+            ParallelColony parallelColony = new ParallelColony(colony, antCountPerIteration, config.threadCount,
+                    config.seed);
+            parallelColony.skipIterations(firstIteration);
+            parallelColony.stopWhen(monitor::interrupted);
+            try {
+                for (int iteration = firstIteration; iteration < iterationCount; iteration++) {
+                    double iterationBest = parallelColony.runIteration(Q, degradationFactor);
+                    if (iterationFinished(iteration, iterationBest, colony.bestTour, colony.bestLength, null)) {
+                        break;
+                    }
+                }
+            } finally {
+                parallelColony.shutdown();
+            }
+            bestLength = colony.bestLength;
+            bestTour = colony.bestTour;
+        } else if (config.variant != ColonyVariant.ANT_SYSTEM) {
+            // Iterations of the variants that update the pheromones once all ants of an iteration are done
+            Random rng = resumed != null && resumed.random != null ? resumed.random : new Random(config.seed);
+            Ant[] ants = new Ant[antCountPerIteration];
+            for (int antIndex = 0; antIndex < antCountPerIteration; antIndex++) {
+                ants[antIndex] = colony.newAnt();
+            }
+            for (int iteration = firstIteration; iteration < iterationCount; iteration++) {
+                int built = 0;
+                while (built < ants.length && (built == 0 || !monitor.interrupted())) {
+                    colony.constructTour(ants[built++], rng);
+                }
+                // A cut iteration ends with the tours built so far
+                Ant[] finished = built < ants.length ? Arrays.copyOf(ants, built) : ants;
+                double iterationBest = colony.finishIteration(finished, Q, degradationFactor);
+                if (iterationFinished(iteration, iterationBest, colony.bestTour, colony.bestLength, rng)) {
+                    break;
+                }
+            }
+            bestLength = colony.bestLength;
+            bestTour = colony.bestTour;
+        } else {
+            // Iterations of the Ant Colony Optimization algorithm
+            Random rng = resumed != null && resumed.random != null ? resumed.random : new Random(config.seed);
+            Ant ant = colony.newAnt();
+            if (colony.bestLength < bestLength) {
+                // A warm-started colony brings the tour to beat
+                bestLength = colony.bestLength;
+                System.arraycopy(colony.bestTour, 0, bestTour, 0, bestTour.length);
+            }
+            for (int iteration = firstIteration; iteration < iterationCount; iteration++) {
+                double iterationBest = Double.MAX_VALUE;
+                for (int antIndex = 0; antIndex < antCountPerIteration; antIndex++) {
+                    if (antIndex > 0 && monitor.interrupted()) {
+                        break; // The deadline passed or the run was cancelled, evaporate and stop
+                    }
+                    // Construct path for each ant
+                    double distance = colony.constructTour(ant, rng);
+                    iterationBest = Math.min(iterationBest, distance);
+                    // Update best path if shorter path is found
+                    if (distance < bestLength) {
+                        bestLength = distance;
+                        System.arraycopy(ant.tour, 0, bestTour, 0, bestTour.length);
+                    }
+                    // Update pheromone levels based on ant path
+                    colony.updatePheromones(ant.tour, distance, Q);
+                }
+                // Evaporate pheromone levels
+                colony.evaporatePheromones(degradationFactor);
+                if (iterationFinished(iteration, iterationBest, bestTour, bestLength, rng)) {
+                    break;
+                }
+            }
+        }
+        return bestTour;
+    }
+
+    /**
+     * Passes the best tour to the tour listeners if it improved, reports the iteration to the monitor
+     * and saves a checkpoint if one is due. A run that is stopped by its time budget or a cancellation
+     * saves a checkpoint as well, so it can be continued. An iteration it cut short counts as finished, so the
+     * continued run goes on from the trails the built tours left, not exactly as the uninterrupted run would.
+     *
+     * @param iteration     Number of the iteration, starting at 0
+     * @param iterationBest Length of the best tour built in the iteration
+     * @param globalTour    The best tour found so far
+     * @param globalBest    Length of the best tour found so far
+     * @param random        Random number generator of the loop, null if it keeps its own streams
+     * @return true if the run should stop
+     * @throws UncheckedIOException if the checkpoint cannot be written
+     */
+    private boolean iterationFinished(int iteration, double iterationBest, int[] globalTour, double globalBest,
+                                      Random random) {
+        if (globalBest < publishedLength && !tourListeners.isEmpty()) {
+            publishedLength = globalBest;
+            for (TourListener listener : tourListeners) {
+                listener.improved(globalTour.clone(), globalBest);
+            }
+        }
+        boolean stop = monitor.iterationFinished(iterationBest, globalBest);
+        if (config.checkpointFile != null) {
+            int finished = iteration + 1;
+            boolean due = config.checkpointInterval > 0 && finished % config.checkpointInterval == 0;
+            boolean interrupted = monitor.stopReason() == ConvergenceMonitor.StopReason.TIME_BUDGET
+                    || monitor.stopReason() == ConvergenceMonitor.StopReason.CANCELLED;
+            if (due || interrupted) {
+                saveCheckpoint(finished, globalTour, globalBest, random);
+            }
+        }
+        return stop;
+    }
+
+    /**
+     * Saves the state of the run after an iteration.
+     *
+     * @param finished   Number of iterations finished
+     * @param globalTour The best tour found so far
+     * @param globalBest Length of the best tour found so far
+     * @param random     Random number generator of the loop, null if it keeps its own streams
+     * @throws UncheckedIOException if the checkpoint cannot be written
+     */
+    private void saveCheckpoint(int finished, int[] globalTour, double globalBest, Random random) {
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.config = config;
+        checkpoint.iteration = finished;
+        checkpoint.stalledIterations = monitor.stalledIterations();
+        checkpoint.bestTour = globalTour;
+        checkpoint.bestLength = globalBest;
+        checkpoint.minPheromone = colony.minPheromone;
+        checkpoint.maxPheromone = colony.maxPheromone;
+        checkpoint.random = random;
+        try {
+            Checkpoint.write(Path.of(config.checkpointFile), colony, checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Holds the reusable buffers of a single ant.
+ */
+class Ant {
+
+    /** Houses in the order the ant visits them */
+    final int[] tour;
+
+    /** Houses the ant has not visited yet, in their original order */
+    final int[] unvisited;
+
+    /** Position of every house in the unvisited buffer, used by the candidate list mode */
+    final int[] positions;
+
+    /** Scratch space for the transition probabilities */
+    final double[] probabilities;
+
+    /** Length of the last constructed tour */
+    double length;
+
+    /** Local search applied to every constructed tour, null when it is not used */
+    LocalSearch localSearch;
+
+    /** Candidate lists: the houses the ant has not visited yet, to find the nearest one, null otherwise */
+    KdTree unvisitedTree;
+
+    /** Candidate lists: receives the nearest unvisited house from the tree */
+    final int[] nearest = new int[1];
+
+    /**
+     * Constructs an ant with buffers for the given number of houses.
+     *
+     * @param size Number of houses
+     */
+    Ant(int size) {
+        this.tour = new int[size];
+        this.unvisited = new int[size];
+        this.positions = new int[size];
+        this.probabilities = new double[size];
+    }
+}
@@ -0,0 +1,982 @@
+import java.util.ArrayList;
+import java.util.random.RandomGenerator;
+
+/**
+ * Index-based engine of the Ant Colony Optimization method.
+ * Houses are referred to by their index in the houses list, distances and heuristic values are
+ * precomputed once into symmetric matrices, and every ant reuses its own tour and unvisited buffers.
+ * The transition rule reads the weight tau^alpha * eta^beta of every edge from a choice-info matrix that
+ * is refreshed whenever the pheromones change, so constructing a tour costs O(n^2) without any calls to
+ * Math.pow and allocates nothing.
+ * The matrices are stored in full by default, large instances can keep only their upper triangle,
+ * in float precision or outside the heap, see {@link MatrixStorage}. With candidate lists only the edges between
+ * every house and its nearest neighbours are stored, n k entries per matrix, and the distances are computed
+ * from the coordinates, so a colony over 100 000 houses takes tens of megabytes.
+ */
+public class AntColony {
+
+    /** Number of houses in the colony */
+    final int size;
+
+    /** The x-coordinates of the houses */
+    final double[] xs;
+
+    /** The y-coordinates of the houses */
+    final double[] ys;
+
+    /** Distance between every pair of houses, computed from the coordinates with candidate lists */
+    final SymmetricMatrix distances;
+
+    /** Heuristic value of every pair of houses, 1 / distance^beta, only of the candidate edges with candidate lists */
+    final SymmetricMatrix heuristics;
+
+    /**
+     * Pheromone level on the edge between every pair of houses, possibly scaled lazily.
+     * With candidate lists only the candidate edges keep their own level, the others share one that evaporates
+     * and is clamped but receives no deposits, which the transition rule never reads.
+     */
+    SymmetricMatrix pheromones;
+
+    /**
+     * Weight of every edge in the transition rule, pheromone^alpha * heuristic, computed from the stored pheromones.
+     * Under lazy evaporation every entry is off by the same factor, which the transition rule does not notice.
+     * With candidate lists only the candidate edges are stored, since no other entries are read.
+     */
+    final SymmetricMatrix choiceInfo;
+
+    /** Parameter controlling influence of pheromones */
+    final double alpha;
+
+    /** Parameter controlling influence of distance */
+    final double beta;
+
+    /** Number of nearest neighbours every house considers, 0 when candidate lists are not used */
+    final int candidateCount;
+
+    /** Flat candidate lists, the neighbours of house i are stored nearest first at [i * candidateCount] */
+    final int[] candidates;
+
+    /** K-d tree over the houses that every ant copies to find its nearest unvisited house, null without candidates */
+    private final KdTree tree;
+
+    /** Number of neighbours the local search checks for every house, 0 when local search is not used */
+    int localSearchNeighbourCount;
+
+    /** Flat neighbour lists of the local search, laid out like the candidate lists */
+    int[] localSearchNeighbours;
+
+    /** Pheromone update rule of the colony */
+    ColonyVariant variant = ColonyVariant.ANT_SYSTEM;
+
+    /** MAX-MIN: chance that the converged colony still builds the best tour, used to derive the lower limit */
+    double bestTourProbability;
+
+    /** MAX-MIN: every this many iterations the global-best tour deposits instead of the iteration-best one */
+    int globalBestInterval;
+
+    /** MAX-MIN: lower limit of the pheromone levels */
+    double minPheromone;
+
+    /** MAX-MIN: upper limit of the pheromone levels */
+    double maxPheromone;
+
+    /** Ant Colony System: chance of moving along the best edge instead of choosing by probability */
+    double exploitation;
+
+    /** Ant Colony System: share of the pheromone that a passing ant replaces with the initial level */
+    double localEvaporation;
+
+    /** Ant Colony System: initial pheromone level, 1 / (n * nearest neighbour tour length) */
+    double initialPheromone;
+
+    /** Ant Colony System: whether local updates wait until the end of the iteration, as in parallel mode */
+    boolean deferLocalUpdates;
+
+    /** The best tour found by the iterations finished so far */
+    final int[] bestTour;
+
+    /** Length of the best tour found by the iterations finished so far */
+    double bestLength = Double.MAX_VALUE;
+
+    /** Number of iterations finished so far */
+    int iteration;
+
+    /** Whether the trails were seeded from a constructed tour, MAX-MIN then keeps them in the first iteration */
+    boolean warmStarted;
+
+    /**
+     * Constructs a colony over the given houses and precomputes the distance and heuristic matrices.
+     *
+     * @param houses           List of houses
+     * @param alpha            Parameter for controlling the influence of pheromones
+     * @param beta             Parameter for controlling the influence of distance
+     * @param initialPheromone Pheromone level every edge starts with
+     */
+    AntColony(ArrayList<House> houses, double alpha, double beta, double initialPheromone) {
+        this(houses, alpha, beta, initialPheromone, MatrixStorage.FULL);
+    }
+
+    /**
+     * Constructs a colony over the given houses and precomputes the distance and heuristic matrices
+     * with the given storage.
+     *
+     * @param houses           List of houses
+     * @param alpha            Parameter for controlling the influence of pheromones
+     * @param beta             Parameter for controlling the influence of distance
+     * @param initialPheromone Pheromone level every edge starts with
+     * @param storage          How the distance, heuristic and pheromone matrices are stored
+     */
+    AntColony(ArrayList<House> houses, double alpha, double beta, double initialPheromone, MatrixStorage storage) {
+        this(houses, alpha, beta, initialPheromone, storage, 0);
+    }
+
+    /**
+     * Constructs a colony whose transition rule is restricted to the nearest neighbours of every house.
+     *
+     * @param houses           List of houses
+     * @param alpha            Parameter for controlling the influence of pheromones
+     * @param beta             Parameter for controlling the influence of distance
+     * @param initialPheromone Pheromone level every edge starts with
+     * @param candidateCount   Number of nearest neighbours every house considers
+     */
+    AntColony(ArrayList<House> houses, double alpha, double beta, double initialPheromone, int candidateCount) {
+        this(houses, alpha, beta, initialPheromone, MatrixStorage.FULL, candidateCount);
+    }
+
+    /**
+     * Constructs a colony over the given houses and precomputes the heuristic matrix.
+     * Without candidate lists every matrix holds all pairs in the given storage and the distances are precomputed
+     * too. With candidate lists the heuristic, pheromone and choice info matrices only hold the candidate edges
+     * and the distances are computed when read, so the storage is not used.
+     *
+     * @param houses           List of houses
+     * @param alpha            Parameter for controlling the influence of pheromones
+     * @param beta             Parameter for controlling the influence of distance
+     * @param initialPheromone Pheromone level every edge starts with
+     * @param storage          How the matrices are stored without candidate lists
+     * @param candidateCount   Number of nearest neighbours every house considers, 0 to consider every house
+     */
+    AntColony(ArrayList<House> houses, double alpha, double beta, double initialPheromone, MatrixStorage storage,
+              int candidateCount) {
+        this.size = houses.size();
+        this.alpha = alpha;
+        this.beta = beta;
+        this.xs = new double[size];
+        this.ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = houses.get(i).x;
+            ys[i] = houses.get(i).y;
+        }
+        this.candidateCount = Math.max(0, Math.min(candidateCount, size - 1));
+        if (this.candidateCount > 0) {
+            this.tree = new KdTree(xs, ys);
+            this.candidates = nearestNeighbours(this.candidateCount);
+            this.distances = SymmetricMatrix.distances(xs, ys);
+            this.heuristics = SymmetricMatrix.candidates(size, candidates, this.candidateCount);
+            this.pheromones = SymmetricMatrix.candidates(size, candidates, this.candidateCount);
+            this.choiceInfo = SymmetricMatrix.candidates(size, candidates, this.candidateCount);
+            // Fill the candidate lists a house at a time
+            double[] distanceRow = new double[this.candidateCount];
+            double[] heuristicRow = new double[this.candidateCount];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < this.candidateCount; c++) {
+                    distanceRow[c] = distances.get(i, candidates[i * this.candidateCount + c]);
+                }
+                Kernels.INSTANCE.heuristics(distanceRow, this.candidateCount, beta, heuristicRow);
+                heuristics.setCandidateRow(i, candidates, this.candidateCount, heuristicRow);
+            }
+        } else {
+            this.tree = null;
+            this.candidates = null;
+            this.distances = SymmetricMatrix.create(size, storage);
+            this.heuristics = SymmetricMatrix.create(size, storage);
+            this.pheromones = SymmetricMatrix.create(size, storage);
+            this.choiceInfo = SymmetricMatrix.create(size, storage);
+            // Fill the upper triangle a row at a time over the coordinate arrays
+            double[] distanceRow = new double[size];
+            double[] heuristicRow = new double[size];
+            for (int i = 0; i < size; i++) {
+                Kernels.INSTANCE.distances(xs, ys, i, i, size - i, distanceRow);
+                distances.setRow(i, i, size - i, distanceRow);
+                Kernels.INSTANCE.heuristics(distanceRow, size - i, beta, heuristicRow);
+                heuristics.setRow(i, i, size - i, heuristicRow);
+            }
+        }
+        pheromones.fill(initialPheromone);
+        refreshChoiceInfo();
+        this.bestTour = new int[size];
+    }
+
+    /**
+     * Evaporates the trails through a common factor in O(1) instead of multiplying all n^2 of them.
+     * The choice info is computed from the stored trails, so it only changes for the edges that receive pheromone
+     * and is recomputed in full only when the factor is multiplied into the trails.
+     */
+    void useLazyEvaporation() {
+        pheromones = SymmetricMatrix.lazilyScaled(pheromones);
+    }
+
+    /**
+     * Improves every constructed tour with 2-opt and Or-opt moves before it is returned.
+     * Ants created after this call get their own local search buffers.
+     *
+     * @param neighbourCount Number of nearest neighbours the moves are tried towards
+     */
+    void useLocalSearch(int neighbourCount) {
+        this.localSearchNeighbourCount = Math.min(neighbourCount, size - 1);
+        this.localSearchNeighbours = nearestNeighbours(localSearchNeighbourCount);
+    }
+
+    /**
+     * Finds the nearest neighbours of every house with a k-d tree over the house coordinates in O(n k log n).
+     *
+     * @param neighbourCount Number of neighbours per house
+     * @return Flat neighbour lists, the neighbours of house i are stored nearest first at [i * neighbourCount]
+     */
+    int[] nearestNeighbours(int neighbourCount) {
+        int[] lists = new int[size * neighbourCount];
+        KdTree tree = this.tree != null ? this.tree : new KdTree(xs, ys);
+        int[] neighbours = new int[neighbourCount];
+        for (int i = 0; i < size; i++) {
+            tree.nearest(i, neighbourCount, neighbours);
+            System.arraycopy(neighbours, 0, lists, i * neighbourCount, neighbourCount);
+        }
+        return lists;
+    }
+
+    /**
+     * Switches the colony to the MAX-MIN Ant System.
+     * The trails are reset to the upper limit at the end of the first iteration, once a tour length is known.
+     *
+     * @param bestTourProbability Chance that the converged colony still builds the best tour, 0.05 is common
+     * @param globalBestInterval  Every this many iterations the global-best tour deposits
+     */
+    void useMaxMin(double bestTourProbability, int globalBestInterval) {
+        this.variant = ColonyVariant.MAX_MIN;
+        this.bestTourProbability = bestTourProbability;
+        this.globalBestInterval = globalBestInterval;
+    }
+
+    /**
+     * Switches the colony to the Ant Colony System and resets every trail to 1 / (n * L),
+     * where L is the length of a nearest neighbour tour. With candidate lists the tour is built over the k-d tree
+     * instead of the distance matrix, in O(n log n).
+     *
+     * @param exploitation     Chance of moving along the best edge, 0.9 is common
+     * @param localEvaporation Share of the pheromone a passing ant replaces, 0.1 is common
+     */
+    void useAntColonySystem(double exploitation, double localEvaporation) {
+        this.variant = ColonyVariant.ANT_COLONY_SYSTEM;
+        this.exploitation = exploitation;
+        this.localEvaporation = localEvaporation;
+        double length = candidateCount > 0
+                ? tourLength(new InitialTour(xs, ys).build(InitialTour.Heuristic.NEAREST_NEIGHBOUR))
+                : nearestNeighbourLength();
+        this.initialPheromone = 1 / (size * length);
+        pheromones.fill(initialPheromone);
+        refreshChoiceInfo();
+    }
+
+    /**
+     * Seeds the colony from a tour built by a constructive heuristic, so the first iterations do not start
+     * from trails that carry no information. The tour becomes the best tour, and every trail starts at the
+     * level the variant derives from its length: Ant System m Q / L, which is the amount one iteration deposits,
+     * MAX-MIN the upper limit 1 / ((1 - rho) L) and Ant Colony System 1 / (n L).
+     * With a bias the edges of the tour start that share higher than the others.
+     *
+     * @param tour              The tour as house indices
+     * @param antCount          Number of ants per iteration
+     * @param Q                 Q value for updating pheromone levels, only used by Ant System
+     * @param degradationFactor Factor by which the pheromones evaporate
+     * @param bias              Share by which the trails along the tour start higher, 0 for none
+     */
+    void warmStart(int[] tour, int antCount, double Q, double degradationFactor, double bias) {
+        double length = tourLength(tour);
+        bestLength = length;
+        System.arraycopy(tour, 0, bestTour, 0, size);
+        double level;
+        if (variant == ColonyVariant.MAX_MIN) {
+            updateLimits(degradationFactor);
+            level = maxPheromone;
+        } else if (variant == ColonyVariant.ANT_COLONY_SYSTEM) {
+            initialPheromone = 1 / (size * length);
+            level = initialPheromone;
+        } else {
+            level = antCount * Q / length;
+        }
+        pheromones.fill(level);
+        if (bias > 0) {
+            for (int i = 0; i < size; i++) {
+                pheromones.set(tour[i], tour[(i + 1) % size], level * (1 + bias));
+            }
+        }
+        warmStarted = true;
+        refreshChoiceInfo();
+    }
+
+    /**
+     * Creates an ant with buffers sized for this colony.
+     *
+     * @return A new ant
+     */
+    Ant newAnt() {
+        Ant ant = new Ant(size);
+        if (localSearchNeighbourCount > 0) {
+            ant.localSearch = new LocalSearch(size, distances, localSearchNeighbours, localSearchNeighbourCount);
+        }
+        if (tree != null) {
+            ant.unvisitedTree = tree.copy();
+        }
+        return ant;
+    }
+
+    /**
+     * Constructs a tour for the given ant into its tour buffer.
+     *
+     * @param ant    The ant whose buffers are filled
+     * @param random Random number generator
+     * @return The length of the constructed tour
+     */
+    double constructTour(Ant ant, RandomGenerator random) {
+        if (candidateCount > 0) {
+            constructCandidateTour(ant, random);
+        } else {
+            constructFullTour(ant, random);
+        }
+        // Improve the tour with the local search stage if the ant has one
+        if (ant.localSearch != null) {
+            ant.length = ant.localSearch.improve(ant.tour, ant.length);
+        }
+        return ant.length;
+    }
+
+    /**
+     * Constructs a tour for the given ant considering every unvisited house at each step.
+     * Random numbers are drawn in the same order as the list-based implementation,
+     * so the same generator state produces the same tour.
+     *
+     * @param ant    The ant whose buffers are filled
+     * @param random Random number generator
+     */
+    private void constructFullTour(Ant ant, RandomGenerator random) {
+        int[] tour = ant.tour;
+        int[] unvisited = ant.unvisited;
+        for (int i = 0; i < size; i++) {
+            unvisited[i] = i;
+        }
+        int remaining = size;
+
+        // Choose a random starting house for the ant
+        int current = removeAt(unvisited, remaining, random.nextInt(remaining));
+        remaining--;
+        tour[0] = current;
+
+        // Construct the ant's path by selecting the next house based on pheromone levels and distances
+        for (int step = 1; step < size; step++) {
+            int position = selectNextHouse(ant, current, remaining, random);
+            int next = removeAt(unvisited, remaining, position);
+            remaining--;
+            tour[step] = next;
+            if (variant == ColonyVariant.ANT_COLONY_SYSTEM && !deferLocalUpdates) {
+                localUpdate(current, next);
+            }
+            current = next;
+        }
+
+        ant.length = tourLength(tour);
+    }
+
+    /**
+     * Selects the next house for an ant to visit among the first {@code remaining} entries of its unvisited buffer.
+     *
+     * @param ant       The ant that is moving
+     * @param current   Index of the current house
+     * @param remaining Number of houses that are still unvisited
+     * @param random    Random number generator
+     * @return The position of the chosen house in the unvisited buffer
+     */
+    int selectNextHouse(Ant ant, int current, int remaining, RandomGenerator random) {
+        int[] unvisited = ant.unvisited;
+        double[] probabilities = ant.probabilities;
+
+        // Calculate probabilities for selecting each remaining house based on pheromone levels and distances
+        double totalProbability = choiceInfo.gatherRow(current, unvisited, remaining, probabilities);
+        if (variant == ColonyVariant.ANT_COLONY_SYSTEM && random.nextDouble() < exploitation) {
+            return strongest(probabilities, remaining);
+        }
+
+        // Choose the next house based on the calculated probabilities
+        double randomProbability = random.nextDouble(0, totalProbability);
+        double probability = 0;
+        for (int i = 0; i < remaining; i++) {
+            probability += probabilities[i];
+            if (randomProbability <= probability) {
+                return i;
+            }
+        }
+        // If no house is selected based on probabilities, return the last remaining house
+        return remaining - 1;
+    }
+
+    /**
+     * Constructs a tour for the given ant using the candidate lists.
+     * Every step only scores the unvisited candidates of the current house, so a tour costs about O(n k).
+     * The unvisited buffer is kept unordered with a position index, so a house is removed in O(1)
+     * and a house is unvisited exactly when its position is below the number of remaining houses.
+     * The visited houses are removed from the k-d tree of the ant too, which answers the fallback to the nearest
+     * unvisited house in about O(log n).
+     *
+     * @param ant    The ant whose buffers are filled
+     * @param random Random number generator
+     */
+    private void constructCandidateTour(Ant ant, RandomGenerator random) {
+        int[] tour = ant.tour;
+        int[] unvisited = ant.unvisited;
+        int[] positions = ant.positions;
+        for (int i = 0; i < size; i++) {
+            unvisited[i] = i;
+            positions[i] = i;
+        }
+        int remaining = size;
+        ant.unvisitedTree.restore();
+
+        // Choose a random starting house for the ant
+        int current = random.nextInt(size);
+        remaining = swapRemove(ant, remaining, current);
+        tour[0] = current;
+
+        for (int step = 1; step < size; step++) {
+            int next = selectCandidate(ant, current, remaining, random);
+            if (next < 0) {
+                // Every candidate is visited, fall back to the nearest unvisited house
+                next = nearestUnvisited(ant, current);
+            }
+            remaining = swapRemove(ant, remaining, next);
+            tour[step] = next;
+            if (variant == ColonyVariant.ANT_COLONY_SYSTEM && !deferLocalUpdates) {
+                localUpdate(current, next);
+            }
+            current = next;
+        }
+
+        ant.length = tourLength(tour);
+    }
+
+    /**
+     * Selects the next house among the unvisited candidates of the current house.
+     *
+     * @param ant       The ant that is moving
+     * @param current   Index of the current house
+     * @param remaining Number of houses that are still unvisited
+     * @param random    Random number generator
+     * @return Index of the chosen house, or -1 if every candidate is visited
+     */
+    private int selectCandidate(Ant ant, int current, int remaining, RandomGenerator random) {
+        int[] positions = ant.positions;
+        double[] probabilities = ant.probabilities;
+        int offset = current * candidateCount;
+        double totalProbability = 0;
+
+        choiceInfo.getCandidateRow(current, candidates, candidateCount, probabilities);
+        for (int i = 0; i < candidateCount; i++) {
+            if (positions[candidates[offset + i]] >= remaining) {
+                probabilities[i] = 0; // Already visited
+            }
+            totalProbability += probabilities[i];
+        }
+        if (totalProbability == 0) {
+            return -1;
+        }
+        if (variant == ColonyVariant.ANT_COLONY_SYSTEM && random.nextDouble() < exploitation) {
+            return candidates[offset + strongest(probabilities, candidateCount)];
+        }
+
+        double randomProbability = random.nextDouble(0, totalProbability);
+        double probability = 0;
+        int chosen = -1;
+        for (int i = 0; i < candidateCount; i++) {
+            if (probabilities[i] > 0) {
+                chosen = candidates[offset + i];
+                probability += probabilities[i];
+                if (randomProbability <= probability) {
+                    break;
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Finds the position of the largest probability.
+     *
+     * @param probabilities The probabilities
+     * @param count         Number of probabilities to look at
+     * @return The position of the largest one
+     */
+    private static int strongest(double[] probabilities, int count) {
+        int strongest = 0;
+        for (int i = 1; i < count; i++) {
+            if (probabilities[i] > probabilities[strongest]) {
+                strongest = i;
+            }
+        }
+        return strongest;
+    }
+
+    /**
+     * Finds the unvisited house nearest to the current house with the k-d tree of the ant.
+     *
+     * @param ant     The ant that is moving
+     * @param current Index of the current house
+     * @return Index of the nearest unvisited house
+     */
+    private static int nearestUnvisited(Ant ant, int current) {
+        ant.unvisitedTree.nearest(current, 1, ant.nearest);
+        return ant.nearest[0];
+    }
+
+    /**
+     * Removes a house from the unordered unvisited buffer by swapping it with the last unvisited house,
+     * and from the k-d tree of the ant.
+     *
+     * @param ant       The ant whose buffer is changed
+     * @param remaining Number of houses that are still unvisited
+     * @param house     Index of the house to remove
+     * @return The new number of unvisited houses
+     */
+    private static int swapRemove(Ant ant, int remaining, int house) {
+        int[] unvisited = ant.unvisited;
+        int[] positions = ant.positions;
+        int last = unvisited[remaining - 1];
+        int position = positions[house];
+        unvisited[position] = last;
+        positions[last] = position;
+        unvisited[remaining - 1] = house;
+        positions[house] = remaining - 1;
+        ant.unvisitedTree.remove(house);
+        return remaining - 1;
+    }
+
+    /**
+     * Updates the pheromone levels on the edges of the given tour.
+     *
+     * @param tour   The tour taken by an ant
+     * @param length The length of the tour
+     * @param Q      Q value
+     */
+    void updatePheromones(int[] tour, double length, double Q) {
+        depositPath(tour, Q / length);
+        for (int i = 0; i < tour.length - 1; i++) {
+            refreshChoiceInfo(tour[i], tour[i + 1]);
+        }
+    }
+
+    /**
+     * Adds the same amount of pheromone to every edge of an open path, without refreshing the choice info.
+     *
+     * @param tour   The path
+     * @param amount Pheromone added to each edge
+     */
+    private void depositPath(int[] tour, double amount) {
+        for (int i = 0; i < tour.length - 1; i++) {
+            int from = tour[i];
+            int to = tour[i + 1];
+            pheromones.add(from, to, amount);
+        }
+    }
+
+    /**
+     * Finishes an iteration in which every ant built its tour on the same pheromone matrix.
+     * Records the best tour, then updates the trails once according to the variant:
+     * Ant System deposits every tour and evaporates, MAX-MIN evaporates, deposits the iteration-best
+     * or global-best tour and clamps, Ant Colony System applies deferred local updates and then
+     * reinforces the global-best tour only.
+     *
+     * @param ants              The ants of the iteration, in a fixed order
+     * @param Q                 Q value for updating pheromone levels, only used by Ant System
+     * @param degradationFactor Factor by which the pheromones evaporate
+     * @return Length of the best tour of this iteration
+     */
+    double finishIteration(Ant[] ants, double Q, double degradationFactor) {
+        Ant iterationBest = ants[0];
+        boolean improved = false;
+        for (Ant ant : ants) {
+            if (ant.length < iterationBest.length) {
+                iterationBest = ant;
+            }
+            if (ant.length < bestLength) {
+                bestLength = ant.length;
+                System.arraycopy(ant.tour, 0, bestTour, 0, size);
+                improved = true;
+            }
+        }
+
+        if (variant == ColonyVariant.ANT_SYSTEM) {
+            for (Ant ant : ants) {
+                depositPath(ant.tour, Q / ant.length);
+            }
+            pheromones.scale(degradationFactor);
+            if (pheromones.factor() != 1) {
+                // Lazy evaporation left the stored trails alone, only the deposited edges changed
+                for (Ant ant : ants) {
+                    for (int i = 0; i < size - 1; i++) {
+                        refreshChoiceInfo(ant.tour[i], ant.tour[i + 1]);
+                    }
+                }
+            } else {
+                refreshChoiceInfo();
+            }
+        } else if (variant == ColonyVariant.MAX_MIN) {
+            if (improved) {
+                updateLimits(degradationFactor);
+            }
+            if (iteration == 0 && !warmStarted) {
+                // Start every trail at the upper limit so the colony explores widely at first
+                pheromones.fill(maxPheromone);
+            }
+            pheromones.scale(degradationFactor);
+            if (globalBestInterval > 0 && (iteration + 1) % globalBestInterval == 0) {
+                deposit(bestTour, 1 / bestLength);
+            } else {
+                deposit(iterationBest.tour, 1 / iterationBest.length);
+            }
+            pheromones.clamp(minPheromone, maxPheromone);
+            refreshChoiceInfo();
+        } else {
+            if (deferLocalUpdates) {
+                for (Ant ant : ants) {
+                    for (int i = 0; i < size - 1; i++) {
+                        localUpdate(ant.tour[i], ant.tour[i + 1]);
+                    }
+                }
+            }
+            // Only the edges of the global-best tour evaporate and receive pheromone
+            double evaporation = 1 - degradationFactor;
+            for (int i = 0; i < size; i++) {
+                int from = bestTour[i];
+                int to = bestTour[(i + 1) % size];
+                pheromones.set(from, to, degradationFactor * pheromones.get(from, to) + evaporation / bestLength);
+                refreshChoiceInfo(from, to);
+            }
+        }
+        iteration++;
+        return iterationBest.length;
+    }
+
+    /**
+     * MAX-MIN: derives the pheromone limits from the global-best tour length.
+     * The upper limit is the level a trail converges to when the best tour deposits on it every iteration,
+     * the lower one is chosen so that the converged colony still builds the best tour with the configured chance.
+     *
+     * @param degradationFactor Factor by which the pheromones evaporate
+     */
+    private void updateLimits(double degradationFactor) {
+        maxPheromone = 1 / ((1 - degradationFactor) * bestLength);
+        double root = Math.pow(bestTourProbability, 1.0 / size);
+        double averageChoices = size / 2.0;
+        minPheromone = Math.min(maxPheromone, maxPheromone * (1 - root) / ((averageChoices - 1) * root));
+    }
+
+    /**
+     * Takes over a tour found by another colony. It becomes the best tour if it is shorter than the current one,
+     * and its edges are reinforced the way the variant reinforces a tour of its own: Ant System deposits Q / length,
+     * MAX-MIN deposits 1 / length within the limits, Ant Colony System applies its global update rule.
+     *
+     * @param tour              The tour as house indices
+     * @param length            The length of the tour
+     * @param Q                 Q value for updating pheromone levels, only used by Ant System
+     * @param degradationFactor Factor by which the pheromones evaporate
+     */
+    void acceptMigrant(int[] tour, double length, double Q, double degradationFactor) {
+        if (length < bestLength) {
+            bestLength = length;
+            System.arraycopy(tour, 0, bestTour, 0, size);
+            if (variant == ColonyVariant.MAX_MIN) {
+                updateLimits(degradationFactor);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            int from = tour[i];
+            int to = tour[(i + 1) % size];
+            double level = pheromones.get(from, to);
+            if (variant == ColonyVariant.ANT_SYSTEM) {
+                level += Q / length;
+            } else if (variant == ColonyVariant.MAX_MIN) {
+                level = Math.min(maxPheromone, level + 1 / length);
+            } else {
+                level = degradationFactor * level + (1 - degradationFactor) / length;
+            }
+            pheromones.set(from, to, level);
+            refreshChoiceInfo(from, to);
+        }
+    }
+
+    /**
+     * Warm start after houses were added or removed: takes over the trails of a previous colony over mostly
+     * the same houses. Edges between two houses of the previous colony keep their level, edges to new houses
+     * start at the average level of the previous trails. The iteration count and the MAX-MIN limits are taken
+     * over too, so the trails are not reset at the end of the next iteration.
+     * With candidate lists only the candidate edges are averaged and taken over, in O(n k).
+     *
+     * @param previous      The previous colony, with the same variant
+     * @param previousIndex Index of every house in the previous colony, -1 for new houses
+     */
+    void inheritPheromones(AntColony previous, int[] previousIndex) {
+        double average = previous.averagePheromone();
+        if (Double.isNaN(average)) {
+            average = pheromones.get(0, 0);
+        }
+        if (candidateCount > 0) {
+            double[] levels = new double[candidateCount];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < candidateCount; c++) {
+                    int oldI = previousIndex[i];
+                    int oldJ = previousIndex[candidates[i * candidateCount + c]];
+                    levels[c] = oldI < 0 || oldJ < 0 ? average : previous.pheromones.get(oldI, oldJ);
+                }
+                pheromones.setCandidateRow(i, candidates, candidateCount, levels);
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    int oldI = previousIndex[i];
+                    int oldJ = previousIndex[j];
+                    pheromones.set(i, j, oldI < 0 || oldJ < 0 ? average : previous.pheromones.get(oldI, oldJ));
+                }
+            }
+        }
+        iteration = previous.iteration;
+        minPheromone = previous.minPheromone;
+        maxPheromone = previous.maxPheromone;
+        refreshChoiceInfo();
+    }
+
+    /**
+     * Averages the pheromone levels of the edges that keep their own level: every edge, or with candidate lists
+     * every entry of the candidate lists.
+     *
+     * @return The average level, NaN if the colony has no edges
+     */
+    private double averagePheromone() {
+        double total = 0;
+        long edgeCount;
+        if (candidateCount > 0) {
+            double[] levels = new double[candidateCount];
+            for (int i = 0; i < size; i++) {
+                pheromones.getCandidateRow(i, candidates, candidateCount, levels);
+                for (int c = 0; c < candidateCount; c++) {
+                    total += levels[c];
+                }
+            }
+            edgeCount = (long) size * candidateCount;
+        } else {
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    total += pheromones.get(i, j);
+                }
+            }
+            edgeCount = (long) size * (size - 1) / 2;
+        }
+        return edgeCount > 0 ? total / edgeCount : Double.NaN;
+    }
+
+    /**
+     * Restores the invariants of the colony after its pheromone levels were changed from outside:
+     * MAX-MIN trails are brought back within their limits and the choice info is recomputed.
+     */
+    void pheromonesChanged() {
+        if (variant == ColonyVariant.MAX_MIN && iteration > 0) {
+            pheromones.clamp(minPheromone, maxPheromone);
+        }
+        refreshChoiceInfo();
+    }
+
+    /**
+     * Adds the same amount of pheromone to every edge of a closed tour.
+     *
+     * @param tour   The tour
+     * @param amount Pheromone added to each edge
+     */
+    private void deposit(int[] tour, double amount) {
+        for (int i = 0; i < size; i++) {
+            int from = tour[i];
+            int to = tour[(i + 1) % size];
+            pheromones.add(from, to, amount);
+        }
+    }
+
+    /**
+     * Ant Colony System: moves the trail on an edge an ant just walked back towards the initial level,
+     * so the following ants are less likely to repeat the same tour.
+     *
+     * @param from Index of the house the ant left
+     * @param to   Index of the house the ant moved to
+     */
+    private void localUpdate(int from, int to) {
+        double level = (1 - localEvaporation) * pheromones.get(from, to) + localEvaporation * initialPheromone;
+        pheromones.set(from, to, level);
+        refreshChoiceInfo(from, to);
+    }
+
+    /**
+     * Calculates the length of a tour that starts at house 0 and always moves to the nearest unvisited house.
+     *
+     * @return The length of the nearest neighbour tour
+     */
+    private double nearestNeighbourLength() {
+        boolean[] visited = new boolean[size];
+        int current = 0;
+        visited[0] = true;
+        double length = 0;
+        for (int step = 1; step < size; step++) {
+            int nearest = -1;
+            for (int next = 0; next < size; next++) {
+                if (!visited[next] && (nearest < 0 || distances.get(current, next) < distances.get(current, nearest))) {
+                    nearest = next;
+                }
+            }
+            visited[nearest] = true;
+            length += distances.get(current, nearest);
+            current = nearest;
+        }
+        return length + distances.get(current, 0);
+    }
+
+    /**
+     * Evaporates the pheromone levels on all edges. Lazy evaporation leaves the choice info as it is.
+     *
+     * @param degradationFactor Factor by which the pheromones evaporate
+     */
+    void evaporatePheromones(double degradationFactor) {
+        pheromones.scale(degradationFactor);
+        if (pheromones.factor() == 1) {
+            refreshChoiceInfo();
+        }
+    }
+
+    /**
+     * Recomputes the choice info after the pheromones changed on many edges.
+     * With candidate lists only the candidate edges are recomputed, O(n k), otherwise every edge, O(n^2).
+     */
+    void refreshChoiceInfo() {
+        SymmetricMatrix stored = pheromones.stored();
+        if (candidateCount > 0) {
+            // The candidate list of a house at a time
+            double[] pheromoneRow = new double[candidateCount];
+            double[] heuristicRow = new double[candidateCount];
+            double[] choiceRow = new double[candidateCount];
+            for (int i = 0; i < size; i++) {
+                stored.getCandidateRow(i, candidates, candidateCount, pheromoneRow);
+                heuristics.getCandidateRow(i, candidates, candidateCount, heuristicRow);
+                Kernels.INSTANCE.choiceInfo(pheromoneRow, heuristicRow, candidateCount, alpha, choiceRow);
+                choiceInfo.setCandidateRow(i, candidates, candidateCount, choiceRow);
+            }
+        } else {
+            // A row of the upper triangle at a time
+            double[] pheromoneRow = new double[size];
+            double[] heuristicRow = new double[size];
+            double[] choiceRow = new double[size];
+            for (int i = 0; i < size; i++) {
+                int count = size - i;
+                stored.getRow(i, i, count, pheromoneRow);
+                heuristics.getRow(i, i, count, heuristicRow);
+                Kernels.INSTANCE.choiceInfo(pheromoneRow, heuristicRow, count, alpha, choiceRow);
+                choiceInfo.setRow(i, i, count, choiceRow);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the choice info of one edge after its pheromone level changed.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     */
+    void refreshChoiceInfo(int i, int j) {
+        choiceInfo.set(i, j, Math.pow(pheromones.stored().get(i, j), alpha) * heuristics.get(i, j));
+    }
+
+    /**
+     * Returns the pheromone level on the edge between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The pheromone level
+     */
+    double pheromone(int i, int j) {
+        return pheromones.get(i, j);
+    }
+
+    /**
+     * Calculates the total length of a closed tour using the precomputed distances.
+     *
+     * @param tour The tour as house indices
+     * @return The total length of the tour
+     */
+    double tourLength(int[] tour) {
+        double totalDistance = 0;
+        for (int i = 0; i < tour.length - 1; i++) {
+            totalDistance += distances.get(tour[i], tour[i + 1]);
+        }
+        // Add distance from last house back to the starting house
+        totalDistance += distances.get(tour[tour.length - 1], tour[0]);
+        return totalDistance;
+    }
+
+    /**
+     * Converts a tour of house indices back to a list of houses.
+     *
+     * @param tour   The tour as house indices
+     * @param houses List of houses the indices refer to
+     * @return The tour as a list of houses
+     */
+    static ArrayList<House> toHouses(int[] tour, ArrayList<House> houses) {
+        ArrayList<House> path = new ArrayList<>(tour.length);
+        for (int index : tour) {
+            path.add(houses.get(index));
+        }
+        return path;
+    }
+
+    /**
+     * Removes the entry at the given position while keeping the order of the remaining entries.
+     *
+     * @param buffer   The buffer to remove from
+     * @param count    Number of valid entries in the buffer
+     * @param position Position of the entry to remove
+     * @return The removed entry
+     */
+    private static int removeAt(int[] buffer, int count, int position) {
+        int removed = buffer[position];
+        System.arraycopy(buffer, position + 1, buffer, position, count - position - 1);
+        return removed;
+    }
+
+    /**
+     * Computes the flat distance matrix of the given houses.
+     *
+     * @param houses List of houses
+     * @return Flat distance matrix, the distance between houses i and j is stored at [i * size + j]
+     */
+    static double[] distanceMatrix(ArrayList<House> houses) {
+        int size = houses.size();
+        double[] distances = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                distances[i * size + j] = distance(houses.get(i), houses.get(j));
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * Calculates the distance between two houses.
+     *
+     * @param house1 The first house
+     * @param house2 The second house
+     * @return The distance between the two houses
+     */
+    static double distance(House house1, House house2) {
+        return Math.sqrt(Math.pow(house1.x - house2.x, 2) + Math.pow(house1.y - house2.y, 2));
+    }
+}
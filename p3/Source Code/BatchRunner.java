@@ -0,0 +1,311 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Headless batch mode: solves many coordinate files concurrently in one virtual machine and writes
+ * one CSV line per file, in the order the files were given. Nothing is drawn.
+ * Usage:
+ * <pre>
+ * java BatchRunner [--config solver.properties] [--threads 4] [--output results.csv] files or folders...
+ * </pre>
+ * Folders are searched recursively for files. Every file is solved by its own solver on a fixed pool of threads,
+ * with the parameters of {@link SolverConfig} read from the config file. The parallel colony mode should be left
+ * off, the instances already keep every thread busy.
+ * With {@code snapshotInterval} set, the pheromone map of every file is written as PNG every few iterations,
+ * see {@link PheromoneRenderer}. A {@code checkpointFile} or {@code telemetryFile} is kept per file, named after
+ * the coordinate file, so {@code run.ckpt} becomes {@code input01.txt.run.ckpt} next to it. Snapshots are named
+ * after the coordinate file too, so a batch that keeps any of these files refuses two files of the same name.
+ */
+public class BatchRunner {
+
+    /** Header of the result file */
+    private static final String HEADER = "file,houses,method,length,time_ms,iterations,tour,error";
+
+    /**
+     * Runs the batch.
+     *
+     * @param args Options followed by the files and folders to solve
+     * @throws IOException          if the config file cannot be read or the result file cannot be written
+     * @throws InterruptedException if the batch is interrupted
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        SolverConfig config = new SolverConfig();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path output = Path.of("results.csv");
+        ArrayList<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--config" -> config = SolverConfig.load(Path.of(args[++i]));
+                case "--threads" -> threads = Integer.parseInt(args[++i]);
+                case "--output" -> output = Path.of(args[++i]);
+                default -> addFiles(Path.of(args[i]), files);
+            }
+        }
+        if (files.isEmpty()) {
+            System.out.println("Usage: java BatchRunner [--config solver.properties] [--threads n] "
+                    + "[--output results.csv] files or folders...");
+            return;
+        }
+
+        String duplicate = duplicateName(files);
+        if (duplicate != null
+                && (config.checkpointFile != null || config.telemetryFile != null || config.snapshotInterval > 0)) {
+            System.out.println("Several files are named " + duplicate + ", their checkpoint, telemetry and snapshot "
+                    + "files would collide");
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<String>> rows = new ArrayList<>(files.size());
+        SolverConfig batchConfig = config;
+        for (Path file : files) {
+            rows.add(pool.submit(() -> solve(file, batchConfig)));
+        }
+
+        // Write the lines in input order as soon as they are ready
+        int failed = 0;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(output))) {
+            writer.println(HEADER);
+            for (int i = 0; i < rows.size(); i++) {
+                String line;
+                try {
+                    line = rows.get(i).get();
+                } catch (ExecutionException e) {
+                    // solve catches its own failures, a file that still fails gets an error line of its own
+                    line = errorLine(files.get(i), 0, config.method, 0, e.getCause());
+                }
+                // Lines of solved files end with an empty error column
+                if (!line.endsWith(",")) {
+                    failed++;
+                }
+                writer.println(line);
+                writer.flush();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double totalTime = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.printf(Locale.ROOT, "Solved %d of %d files in %.2f seconds, results written to %s%n",
+                files.size() - failed, files.size(), totalTime, output);
+    }
+
+    /**
+     * Adds a file, or every file below a folder in sorted order.
+     *
+     * @param path  A file or folder
+     * @param files List the files are added to
+     * @throws IOException if the folder cannot be listed
+     */
+    private static void addFiles(Path path, ArrayList<Path> files) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> stream = Files.walk(path)) {
+                stream.filter(Files::isRegularFile).sorted().forEach(files::add);
+            }
+        } else {
+            files.add(path);
+        }
+    }
+
+    /**
+     * Finds a name shared by two files, the per-file checkpoint, telemetry and snapshot files are named after
+     * the files.
+     *
+     * @param files The files of the batch
+     * @return A name used by more than one file, or null if all names differ
+     */
+    private static String duplicateName(ArrayList<Path> files) {
+        HashSet<Path> names = new HashSet<>();
+        for (Path file : files) {
+            if (!names.add(file.getFileName())) {
+                return file.getFileName().toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path of a file that belongs to one coordinate file: the configured name prefixed with the name
+     * of the coordinate file, in the configured folder.
+     *
+     * @param configured The path set in the config
+     * @param file       The coordinate file
+     * @return The path for this coordinate file
+     */
+    private static Path perFile(String configured, Path file) {
+        Path path = Path.of(configured);
+        return path.resolveSibling(file.getFileName() + "." + path.getFileName());
+    }
+
+    /**
+     * Solves one file with its own solver state.
+     *
+     * @param file   The coordinate file
+     * @param config Parameters of the solver, only read; the checkpoint and telemetry files are resolved per file
+     * @return The CSV line of the file, with the error column filled in if it could not be solved
+     */
+    static String solve(Path file, SolverConfig config) {
+        long startTime = System.nanoTime();
+        int size = 0;
+        if (config.checkpointFile != null || config.telemetryFile != null) {
+            config = config.copy();
+            if (config.checkpointFile != null) {
+                config.checkpointFile = perFile(config.checkpointFile, file).toString();
+            }
+            if (config.telemetryFile != null) {
+                config.telemetryFile = perFile(config.telemetryFile, file).toString();
+            }
+        }
+        try {
+            Coordinates coordinates = Coordinates.read(file);
+            size = coordinates.size();
+            ArrayList<House> houses = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                houses.add(new House(coordinates.xs[i], coordinates.ys[i], i + 1));
+            }
+
+            int[] tour;
+            double length;
+            int iterations = 0;
+            switch (config.method) {
+                case "aco" -> {
+                    AcoSolver solver = new AcoSolver(houses, config);
+                    if (config.snapshotInterval > 0) {
+                        addSnapshots(solver, file, config);
+                    }
+                    tour = solver.solve();
+                    length = solver.bestLength;
+                    iterations = solver.monitor.iterations();
+                    if (config.telemetryFile != null) {
+                        solver.monitor.export(Path.of(config.telemetryFile));
+                    }
+                }
+                case "spatial" -> {
+                    SpatialDecomposition solver = new SpatialDecomposition(houses, config);
+                    tour = solver.solve();
+                    length = solver.bestLength;
+                }
+                case "annealing" -> {
+                    ParallelTempering solver = new ParallelTempering(houses, config);
+                    tour = solver.solve();
+                    length = solver.bestLength;
+                    iterations = solver.rounds;
+                }
+                case "heldKarp" -> {
+                    // Rejects maps whose tables do not fit in the heap
+                    HeldKarp solver = new HeldKarp(size, AntColony.distanceMatrix(houses));
+                    tour = solver.solve();
+                    length = solver.bestLength;
+                }
+                case "branchAndBound" -> {
+                    BranchAndBound solver = new BranchAndBound(size, AntColony.distanceMatrix(houses));
+                    tour = solver.solve();
+                    length = solver.bestLength();
+                }
+                case "bruteForce" -> {
+                    BruteForce solver = new BruteForce(size, AntColony.distanceMatrix(houses));
+                    tour = solver.solve();
+                    length = solver.bestLength;
+                }
+                default -> throw new IllegalArgumentException("Unknown method " + config.method);
+            }
+
+            double time = (System.nanoTime() - startTime) / 1e6;
+            return String.format(Locale.ROOT, "%s,%d,%s,%.5f,%.1f,%d,%s,", quote(file.toString()), size,
+                    config.method, length, time, iterations, houseNumbers(tour));
+        } catch (IOException | RuntimeException | Error e) {
+            // Errors such as running out of heap on a large map only fail this file, the others go on
+            return errorLine(file, size, config.method, (System.nanoTime() - startTime) / 1e6, e);
+        }
+    }
+
+    /**
+     * Returns the CSV line of a file that could not be solved.
+     *
+     * @param file    The coordinate file
+     * @param size    Number of houses, 0 if the file was not read
+     * @param method  The solving method
+     * @param time    Time spent on the file in milliseconds
+     * @param failure Why the file could not be solved
+     * @return The CSV line with the error column filled in
+     */
+    private static String errorLine(Path file, int size, String method, double time, Throwable failure) {
+        // Errors are named, their messages alone such as "Java heap space" do not say what happened
+        String message = String.valueOf(failure.getMessage());
+        if (failure instanceof Error) {
+            message = failure.getMessage() != null ? failure.getClass().getSimpleName() + ": " + message
+                    : failure.getClass().getSimpleName();
+        }
+        return String.format(Locale.ROOT, "%s,%d,%s,,%.1f,,,%s", quote(file.toString()), size, method, time,
+                quote(message));
+    }
+
+    /**
+     * Writes a PNG of the pheromone map every few iterations, named after the file and the iteration.
+     *
+     * @param solver The solver
+     * @param file   The coordinate file
+     * @param config Parameters of the run
+     * @throws IOException if the snapshot folder cannot be created
+     */
+    private static void addSnapshots(AcoSolver solver, Path file, SolverConfig config) throws IOException {
+        Path folder = Files.createDirectories(Path.of(config.snapshotFolder));
+        String name = file.getFileName().toString();
+        PheromoneRenderer renderer = new PheromoneRenderer(config.snapshotSize, config.snapshotThreshold,
+                config.snapshotTopK);
+        solver.monitor.addListener(stats -> {
+            if ((stats.iteration + 1) % config.snapshotInterval == 0) {
+                Path snapshot = folder.resolve(String.format(Locale.ROOT, "%s-%05d.png", name, stats.iteration + 1));
+                try {
+                    renderer.writePng(solver.colony, snapshot);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Lists the house numbers of a tour starting from house 1, like the path printed by the main program
+     * but without returning to the start.
+     *
+     * @param tour The tour as house indices
+     * @return The house numbers separated by spaces
+     */
+    private static String houseNumbers(int[] tour) {
+        int start = 0;
+        while (start < tour.length && tour[start] != 0) {
+            start++;
+        }
+        StringBuilder numbers = new StringBuilder();
+        for (int i = 0; i < tour.length; i++) {
+            if (i > 0) {
+                numbers.append(' ');
+            }
+            numbers.append(tour[(start + i) % tour.length] + 1);
+        }
+        return numbers.toString();
+    }
+
+    /**
+     * Quotes a CSV field.
+     *
+     * @param text The field
+     * @return The field in double quotes, with inner quotes doubled
+     */
+    private static String quote(String text) {
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,458 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exact TSP solver using depth-first branch and bound.
+ * A partial tour starting at house 0 is extended one house at a time while its length is tracked,
+ * and a branch is cut as soon as that length plus a 1-tree lower bound on the rest of the tour
+ * is no shorter than the best tour found so far. The bound is the minimum spanning tree of the unvisited
+ * houses plus the cheapest edges joining it to the last house and to house 0, taken over distances shifted
+ * by Held-Karp node penalties. The penalties are found once at the root by subgradient ascent on the 1-tree
+ * bound of the whole instance, which closes most of the gap a plain spanning tree leaves on outlying houses.
+ * Only the direction of a tour whose last house has a larger index than its second house is searched.
+ * The branches of the second house are searched as separate fork-join tasks that share the incumbent
+ * length through an atomic, so a good tour found by one task prunes all the others.
+ */
+public class BranchAndBound {
+
+    /** Number of houses */
+    private final int size;
+
+    /** Flat distance matrix, the distance between houses i and j is stored at [i * size + j] */
+    private final double[] distances;
+
+    /** For every house, all other houses sorted by their distance to it, used to try near houses first */
+    private final int[] nearestOrder;
+
+    /** Bits of the best tour length found so far, shared by all tasks */
+    private final AtomicLong incumbent = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+
+    /** The best tour found so far */
+    private final int[] bestTour;
+
+    /** Held-Karp penalty of every house */
+    private final double[] penalties;
+
+    /** Flat matrix of penalized distances, distance(i, j) + penalty[i] + penalty[j] */
+    private final double[] weights;
+
+    /**
+     * Constructs a solver over the given distances.
+     *
+     * @param size      Number of houses
+     * @param distances Flat distance matrix
+     */
+    BranchAndBound(int size, double[] distances) {
+        this.size = size;
+        this.distances = distances;
+        this.bestTour = new int[size];
+        this.penalties = new double[size];
+        this.weights = distances.clone();
+        this.nearestOrder = new int[size * Math.max(size - 1, 0)];
+        for (int i = 0; i < size; i++) {
+            Integer[] others = new Integer[size - 1];
+            for (int j = 0, k = 0; j < size; j++) {
+                if (j != i) {
+                    others[k++] = j;
+                }
+            }
+            final int from = i;
+            Arrays.sort(others, (a, b) -> Double.compare(distance(from, a), distance(from, b)));
+            for (int k = 0; k < size - 1; k++) {
+                nearestOrder[i * (size - 1) + k] = others[k];
+            }
+        }
+    }
+
+    /**
+     * Finds an optimal tour starting at house 0.
+     * Of the two directions of the tour, the one whose second house has the smaller index is returned.
+     *
+     * @return The optimal tour as house indices
+     */
+    int[] solve() {
+        if (size <= 3) {
+            int[] tour = new int[size];
+            for (int i = 0; i < size; i++) {
+                tour[i] = i;
+            }
+            offer(tour);
+            return tour;
+        }
+
+        // Start from the nearest neighbour tour so pruning works from the first branch on
+        offer(nearestNeighbourTour());
+        computePenalties();
+
+        // Search the branches of every second house in parallel
+        RecursiveAction[] tasks = new RecursiveAction[size - 1];
+        for (int second = 1; second < size; second++) {
+            tasks[second - 1] = new BranchTask(second);
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        int[] tour;
+        synchronized (this) {
+            tour = bestTour.clone();
+        }
+        // Pick the direction of the tour whose second house has the smaller index
+        if (tour[1] > tour[size - 1]) {
+            for (int i = 1, j = size - 1; i < j; i++, j--) {
+                int temp = tour[i];
+                tour[i] = tour[j];
+                tour[j] = temp;
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * Returns the length of the best tour found so far.
+     *
+     * @return The best tour length
+     */
+    double bestLength() {
+        return Double.longBitsToDouble(incumbent.get());
+    }
+
+    /**
+     * Records a complete tour if it is shorter than the best tour found so far.
+     *
+     * @param tour The tour as house indices
+     */
+    private synchronized void offer(int[] tour) {
+        double length = 0;
+        for (int i = 0; i < size - 1; i++) {
+            length += distance(tour[i], tour[i + 1]);
+        }
+        length += distance(tour[size - 1], tour[0]);
+        if (length < bestLength()) {
+            System.arraycopy(tour, 0, bestTour, 0, size);
+            incumbent.set(Double.doubleToLongBits(length));
+        }
+    }
+
+    /**
+     * Finds the Held-Karp node penalties by subgradient ascent on the 1-tree bound.
+     * A 1-tree is a minimum spanning tree of houses 1..n-1 plus the two cheapest edges of house 0.
+     * Houses with more than two tree edges get a higher penalty and leaves a lower one,
+     * which pushes the 1-tree towards a tour and raises its length towards the optimum.
+     */
+    private void computePenalties() {
+        double[] current = new double[size];
+        int[] degrees = new int[size];
+        double bestBound = -Double.MAX_VALUE;
+        double stepFactor = 2;
+        int sinceImprovement = 0;
+        for (int iteration = 0; iteration < 100 * size && stepFactor > 1e-6; iteration++) {
+            double bound = oneTree(current, degrees);
+            if (bound > bestBound + 1e-12) {
+                bestBound = bound;
+                System.arraycopy(current, 0, penalties, 0, size);
+                sinceImprovement = 0;
+            } else if (++sinceImprovement >= size) {
+                stepFactor /= 2;
+                sinceImprovement = 0;
+            }
+            int squaredNorm = 0;
+            for (int degree : degrees) {
+                squaredNorm += (degree - 2) * (degree - 2);
+            }
+            if (squaredNorm == 0) {
+                // The 1-tree is a tour, the bound cannot be raised further
+                break;
+            }
+            double step = stepFactor * (bestLength() - bound) / squaredNorm;
+            for (int i = 0; i < size; i++) {
+                current[i] += step * (degrees[i] - 2);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                weights[i * size + j] = distance(i, j) + penalties[i] + penalties[j];
+            }
+        }
+    }
+
+    /**
+     * Builds the minimum 1-tree under the given penalties with Prim's algorithm and counts the degree of every house.
+     *
+     * @param penalty The penalty of every house
+     * @param degrees Array the degree of every house is written to
+     * @return The penalized length of the 1-tree minus twice the sum of the penalties, a lower bound on any tour
+     */
+    private double oneTree(double[] penalty, int[] degrees) {
+        Arrays.fill(degrees, 0);
+        double[] connectionCosts = new double[size];
+        int[] parents = new int[size];
+        boolean[] inTree = new boolean[size];
+        double length = 0;
+
+        // Spanning tree of houses 1..n-1
+        inTree[1] = true;
+        for (int i = 2; i < size; i++) {
+            connectionCosts[i] = distance(1, i) + penalty[1] + penalty[i];
+            parents[i] = 1;
+        }
+        for (int added = 2; added < size; added++) {
+            int nearest = -1;
+            for (int i = 2; i < size; i++) {
+                if (!inTree[i] && (nearest < 0 || connectionCosts[i] < connectionCosts[nearest])) {
+                    nearest = i;
+                }
+            }
+            inTree[nearest] = true;
+            length += connectionCosts[nearest];
+            degrees[nearest]++;
+            degrees[parents[nearest]]++;
+            for (int i = 2; i < size; i++) {
+                double cost = distance(nearest, i) + penalty[nearest] + penalty[i];
+                if (!inTree[i] && cost < connectionCosts[i]) {
+                    connectionCosts[i] = cost;
+                    parents[i] = nearest;
+                }
+            }
+        }
+
+        // The two cheapest edges of house 0
+        int first = -1;
+        int second = -1;
+        for (int i = 1; i < size; i++) {
+            double cost = distance(0, i) + penalty[i];
+            if (first < 0 || cost < distance(0, first) + penalty[first]) {
+                second = first;
+                first = i;
+            } else if (second < 0 || cost < distance(0, second) + penalty[second]) {
+                second = i;
+            }
+        }
+        length += distance(0, first) + distance(0, second) + 2 * penalty[0] + penalty[first] + penalty[second];
+        degrees[0] = 2;
+        degrees[first]++;
+        degrees[second]++;
+
+        for (double value : penalty) {
+            length -= 2 * value;
+        }
+        return length;
+    }
+
+    /**
+     * Builds a tour by always moving to the nearest unvisited house.
+     *
+     * @return The nearest neighbour tour starting at house 0
+     */
+    private int[] nearestNeighbourTour() {
+        int[] tour = new int[size];
+        boolean[] visited = new boolean[size];
+        visited[0] = true;
+        for (int position = 1; position < size; position++) {
+            int last = tour[position - 1];
+            for (int k = 0; k < size - 1; k++) {
+                int next = nearestOrder[last * (size - 1) + k];
+                if (!visited[next]) {
+                    tour[position] = next;
+                    visited[next] = true;
+                    break;
+                }
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return distances[i * size + j];
+    }
+
+    /**
+     * Returns the penalized distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance plus the penalties of both houses
+     */
+    private double weight(int i, int j) {
+        return weights[i * size + j];
+    }
+
+    /**
+     * Searches every tour that starts with house 0 followed by a fixed second house.
+     * Each task owns its own buffers, only the incumbent is shared.
+     */
+    @SuppressWarnings("serial") // Tasks only live in the pool and are never serialized
+    private class BranchTask extends RecursiveAction {
+
+        /** The fixed second house */
+        private final int second;
+
+        /** The partial tour */
+        private final int[] path = new int[size];
+
+        /** Whether a house is on the partial tour */
+        private final boolean[] visited = new boolean[size];
+
+        /** Scratch space for the cheapest connection of every house to the spanning tree */
+        private final double[] connectionCosts = new double[size];
+
+        /** Scratch space for the houses not on the partial tour */
+        private final int[] unvisited = new int[size];
+
+        /** Number of unvisited houses with a larger index than the second house, one of them must come last */
+        private int largerLeft;
+
+        /**
+         * Constructs a task for the given second house.
+         *
+         * @param second The fixed second house
+         */
+        BranchTask(int second) {
+            this.second = second;
+        }
+
+        @Override
+        protected void compute() {
+            path[0] = 0;
+            path[1] = second;
+            visited[0] = true;
+            visited[second] = true;
+            largerLeft = size - 1 - second;
+            search(2, distance(0, second));
+        }
+
+        /**
+         * Extends the partial tour at the given depth with every unvisited house, nearest first,
+         * cutting branches that cannot beat the incumbent.
+         *
+         * @param depth  Number of houses on the partial tour
+         * @param length Length of the partial tour
+         */
+        private void search(int depth, double length) {
+            int last = path[depth - 1];
+            if (depth == size) {
+                if (length + distance(last, 0) < bestLength()) {
+                    offer(path);
+                }
+                return;
+            }
+            // Skip mirror images: the last house must have a larger index than the second one
+            if (largerLeft == 0) {
+                return;
+            }
+            if (length + lowerBound(last) >= bestLength()) {
+                return;
+            }
+            for (int k = 0; k < size - 1; k++) {
+                int next = nearestOrder[last * (size - 1) + k];
+                if (visited[next]) {
+                    continue;
+                }
+                double extended = length + distance(last, next);
+                if (extended >= bestLength()) {
+                    continue;
+                }
+                if (next > second) {
+                    if (largerLeft == 1 && depth < size - 1) {
+                        // The last larger house has to be kept for the end of the tour
+                        continue;
+                    }
+                    largerLeft--;
+                }
+                visited[next] = true;
+                path[depth] = next;
+                search(depth + 1, extended);
+                visited[next] = false;
+                if (next > second) {
+                    largerLeft++;
+                }
+            }
+        }
+
+        /**
+         * Computes a lower bound on the rest of the tour from the last house back to house 0.
+         * Two bounds are computed over the penalized distances in O(k^2) and the larger one is used:
+         * a minimum spanning tree of the unvisited houses plus the cheapest edge from the last house
+         * and the cheapest edge to house 0, and half the sum of the two cheapest edges every unvisited house
+         * can still use. The penalties of the path's endpoints and twice those of the unvisited houses are
+         * then taken off again, since every completion pays exactly that much extra under the penalties.
+         *
+         * @param last The last house of the partial tour
+         * @return The lower bound
+         */
+        private double lowerBound(int last) {
+            int count = 0;
+            double toLast = Double.MAX_VALUE;
+            double toStart = Double.MAX_VALUE;
+            double penaltySum = penalties[last] + penalties[0];
+            for (int house = 0; house < size; house++) {
+                if (!visited[house]) {
+                    unvisited[count++] = house;
+                    toLast = Math.min(toLast, weight(last, house));
+                    toStart = Math.min(toStart, weight(0, house));
+                    penaltySum += 2 * penalties[house];
+                }
+            }
+
+            // Every unvisited house is entered and left once, using its two cheapest remaining edges at best
+            double edgeSum = toLast + toStart;
+            for (int i = 0; i < count; i++) {
+                int house = unvisited[i];
+                double first = weight(house, last);
+                double second = weight(house, 0);
+                if (second < first) {
+                    double temp = first;
+                    first = second;
+                    second = temp;
+                }
+                for (int j = 0; j < count; j++) {
+                    double cost = weight(house, unvisited[j]);
+                    if (j == i || cost >= second) {
+                        continue;
+                    }
+                    if (cost < first) {
+                        second = first;
+                        first = cost;
+                    } else {
+                        second = cost;
+                    }
+                }
+                edgeSum += first + second;
+            }
+
+            // Prim's algorithm over the unvisited houses, moving every house added to the tree behind the rest
+            double treeLength = 0;
+            for (int i = 0; i < count; i++) {
+                connectionCosts[i] = weight(unvisited[0], unvisited[i]);
+            }
+            for (int remaining = count - 1; remaining > 0; remaining--) {
+                int nearest = 1;
+                for (int i = 2; i <= remaining; i++) {
+                    if (connectionCosts[i] < connectionCosts[nearest]) {
+                        nearest = i;
+                    }
+                }
+                treeLength += connectionCosts[nearest];
+                int added = unvisited[nearest];
+                unvisited[nearest] = unvisited[remaining];
+                connectionCosts[nearest] = connectionCosts[remaining];
+                for (int i = 1; i < remaining; i++) {
+                    connectionCosts[i] = Math.min(connectionCosts[i], weight(added, unvisited[i]));
+                }
+            }
+            return Math.max(treeLength + toLast + toStart, edgeSum / 2) - penaltySum;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Exact TSP solver that enumerates every tour starting at house 0.
+ * The tour length is carried down the recursion as a running prefix sum, and a branch is cut as soon as
+ * its prefix plus the direct way back to house 0 is no shorter than the best tour found so far,
+ * starting from the length of a nearest neighbour tour. Only the direction of a tour whose last house
+ * has a larger index than its second house is enumerated, which skips mirror images.
+ * Every choice of the second and third house is an independent fork-join task with its own tour buffer
+ * and its own best tour, so the enumeration allocates nothing and needs no synchronization.
+ * For anytime use, a listener can receive every improved tour as soon as a task finds it, starting with the
+ * nearest neighbour tour, and the enumeration can be stopped at a deadline or cancelled, in which case
+ * the best tour found so far is returned.
+ */
+public class BruteForce {
+
+    /** Number of houses */
+    private final int size;
+
+    /** Flat distance matrix, the distance between houses i and j is stored at [i * size + j] */
+    private final double[] distances;
+
+    /** Nodes of the recursion between two looks at the clock */
+    private static final int CLOCK_INTERVAL = 1 << 16;
+
+    /** Length of the optimal tour after solving, or of the best tour found if the enumeration was stopped */
+    double bestLength;
+
+    /** Whether the whole enumeration finished, so the returned tour is optimal */
+    boolean complete;
+
+    /** Receives every improved tour while solving, null if only the result is needed */
+    private TourListener listener;
+
+    /** Length of the last tour passed to the listener */
+    private double publishedLength = Double.MAX_VALUE;
+
+    /** Time at which the enumeration stops in {@link System#nanoTime()} terms, only used if hasDeadline is set */
+    private long deadline;
+
+    /** Whether the enumeration stops at the deadline */
+    private boolean hasDeadline;
+
+    /** Set once the deadline passed or the solver was cancelled, the tasks return as soon as they see it */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a solver over the given distances.
+     *
+     * @param size      Number of houses
+     * @param distances Flat distance matrix
+     */
+    BruteForce(int size, double[] distances) {
+        this.size = size;
+        this.distances = distances;
+    }
+
+    /**
+     * Passes every improved tour to the given listener while solving.
+     *
+     * @param listener The listener
+     */
+    void publishTo(TourListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stops the enumeration once the given point in time has passed.
+     *
+     * @param deadlineNanos The deadline in {@link System#nanoTime()} terms
+     */
+    void stopAt(long deadlineNanos) {
+        this.deadline = deadlineNanos;
+        this.hasDeadline = true;
+    }
+
+    /**
+     * Stops the enumeration as soon as possible. May be called from any thread.
+     */
+    void cancel() {
+        stopped = true;
+    }
+
+    /**
+     * Finds an optimal tour starting at house 0.
+     * Of the two directions of the tour, the one whose second house has the smaller index is returned.
+     *
+     * @return The optimal tour as house indices
+     */
+    int[] solve() {
+        int[] bestTour = new int[size];
+        for (int i = 0; i < size; i++) {
+            bestTour[i] = i;
+        }
+        if (size <= 3) {
+            bestLength = 0;
+            for (int i = 0; i < size; i++) {
+                bestLength += distance(bestTour[i], bestTour[(i + 1) % size]);
+            }
+            complete = true;
+            publish(bestTour, bestLength);
+            return bestTour;
+        }
+
+        // Every task starts from the nearest neighbour tour length and only keeps shorter tours
+        bestTour = nearestNeighbourTour();
+        double initialLength = tourLength(bestTour);
+        publish(bestTour, initialLength);
+
+        // One task for every choice of the second and third house
+        PrefixTask[] tasks = new PrefixTask[(size - 1) * (size - 2)];
+        int count = 0;
+        for (int second = 1; second < size; second++) {
+            for (int third = 1; third < size; third++) {
+                if (third != second) {
+                    tasks[count++] = new PrefixTask(second, third, initialLength);
+                }
+            }
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        // Merge the best tours of the tasks in task order so ties are broken the same way on every run
+        complete = !stopped;
+        bestLength = initialLength;
+        for (PrefixTask task : tasks) {
+            if (task.bestLength < bestLength) {
+                bestLength = task.bestLength;
+                bestTour = task.bestTour;
+            }
+        }
+        return bestTour;
+    }
+
+    /**
+     * Passes a tour to the listener if it is shorter than every tour passed before.
+     * Synchronized because the tasks find their tours concurrently.
+     *
+     * @param tour   The tour as house indices
+     * @param length The length of the tour
+     */
+    private synchronized void publish(int[] tour, double length) {
+        if (listener != null && length < publishedLength) {
+            publishedLength = length;
+            listener.improved(tour.clone(), length);
+        }
+    }
+
+    /**
+     * Builds a tour by always moving to the nearest unvisited house,
+     * in the direction whose second house has the smaller index.
+     *
+     * @return The nearest neighbour tour starting at house 0
+     */
+    private int[] nearestNeighbourTour() {
+        int[] tour = new int[size];
+        boolean[] visited = new boolean[size];
+        visited[0] = true;
+        for (int position = 1; position < size; position++) {
+            int last = tour[position - 1];
+            int nearest = -1;
+            for (int house = 1; house < size; house++) {
+                if (!visited[house] && (nearest < 0 || distance(last, house) < distance(last, nearest))) {
+                    nearest = house;
+                }
+            }
+            tour[position] = nearest;
+            visited[nearest] = true;
+        }
+        if (tour[1] > tour[size - 1]) {
+            for (int i = 1, j = size - 1; i < j; i++, j--) {
+                int temp = tour[i];
+                tour[i] = tour[j];
+                tour[j] = temp;
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * Calculates the length of a closed tour.
+     *
+     * @param tour The tour as house indices
+     * @return The total length of the tour
+     */
+    private double tourLength(int[] tour) {
+        double length = 0;
+        for (int i = 0; i < size - 1; i++) {
+            length += distance(tour[i], tour[i + 1]);
+        }
+        return length + distance(tour[size - 1], tour[0]);
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return distances[i * size + j];
+    }
+
+    /**
+     * Enumerates every tour that starts with house 0 followed by a fixed second and third house.
+     */
+    @SuppressWarnings("serial") // Tasks only live in the pool and are never serialized
+    private class PrefixTask extends RecursiveAction {
+
+        /** The fixed second house */
+        private final int second;
+
+        /** The fixed third house */
+        private final int third;
+
+        /** The tour being permuted, positions from the recursion depth on are not fixed yet */
+        private final int[] tour = new int[size];
+
+        /** The best tour of this task */
+        private final int[] bestTour = new int[size];
+
+        /** Length of the best tour of this task, tours are only kept when they are shorter */
+        private double bestLength;
+
+        /** Number of unfixed houses with a larger index than the second house, one of them must come last */
+        private int largerLeft;
+
+        /** Nodes of the recursion visited by this task, used to look at the clock every now and then */
+        private int nodes;
+
+        /**
+         * Constructs a task for the given second and third house.
+         *
+         * @param second        The fixed second house
+         * @param third         The fixed third house
+         * @param initialLength Length a tour has to beat to be kept
+         */
+        PrefixTask(int second, int third, double initialLength) {
+            this.second = second;
+            this.third = third;
+            this.bestLength = initialLength;
+        }
+
+        @Override
+        protected void compute() {
+            tour[0] = 0;
+            tour[1] = second;
+            tour[2] = third;
+            int position = 3;
+            for (int house = 1; house < size; house++) {
+                if (house != second && house != third) {
+                    tour[position++] = house;
+                    if (house > second) {
+                        largerLeft++;
+                    }
+                }
+            }
+            if (largerLeft == 0 || stopped) {
+                // No tour of this prefix ends with a house larger than the second one, or the time is up
+                return;
+            }
+            permute(3, distance(0, second) + distance(second, third));
+        }
+
+        /**
+         * Generates the permutations of the positions from k on, cutting every prefix that cannot
+         * get back to house 0 shorter than the best tour of this task.
+         *
+         * @param k      The current index
+         * @param prefix Length of the path through positions 0..k-1
+         */
+        private void permute(int k, double prefix) {
+            if (++nodes == CLOCK_INTERVAL) {
+                nodes = 0;
+                if (hasDeadline && System.nanoTime() - deadline >= 0) {
+                    stopped = true;
+                }
+            }
+            if (stopped) {
+                return;
+            }
+            if (k == size) {
+                double length = prefix + distance(tour[size - 1], 0);
+                if (length < bestLength) {
+                    bestLength = length;
+                    System.arraycopy(tour, 0, bestTour, 0, size);
+                    publish(bestTour, length);
+                }
+                return;
+            }
+            for (int i = k; i < size; i++) {
+                int house = tour[i];
+                boolean larger = house > second;
+                if (larger && largerLeft == 1 && k < size - 1) {
+                    // The last larger house has to be kept for the end of the tour
+                    continue;
+                }
+                double extended = prefix + distance(tour[k - 1], house);
+                if (extended + distance(house, 0) >= bestLength) {
+                    continue;
+                }
+                // Swap elements at indices k and i
+                tour[i] = tour[k];
+                tour[k] = house;
+                if (larger) {
+                    largerLeft--;
+                }
+                // Recursively generate permutations for the remaining elements
+                permute(k + 1, extended);
+                // Restore original order for backtracking
+                if (larger) {
+                    largerLeft++;
+                }
+                tour[k] = tour[i];
+                tour[i] = house;
+            }
+        }
+    }
+}
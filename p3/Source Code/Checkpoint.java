@@ -0,0 +1,380 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * The state of an Ant Colony Optimization run between two iterations, saved to a binary file so the run
+ * can be stopped and continued later exactly as if it had not been interrupted.
+ * The file holds, as little-endian values:
+ * <ul>
+ *     <li>a magic number, the format version and the number of houses</li>
+ *     <li>the parameters that shape the run: variant, storage, alpha, beta, Q, evaporation, initial pheromone,
+ *     ants per iteration, iteration count, candidate and local search neighbours, parallel mode, seed,
+ *     lazy evaporation and the warm start heuristic and bias</li>
+ *     <li>the progress: finished iterations, iterations without improvement, the best tour and its length,
+ *     the MAX-MIN limits, the Ant Colony System initial level, the factor of lazy evaporation and, with candidate
+ *     lists, the trail of the pairs outside them</li>
+ *     <li>the state of the random number generator of the sequential loops, in its serialized form</li>
+ *     <li>the upper triangle of the pheromone matrix, in float precision for the float storages, or with
+ *     candidate lists the trail of every candidate, house by house in the order of the candidate lists.
+ *     Under lazy evaporation the stored trails are saved, so the factor is not multiplied into them</li>
+ * </ul>
+ * Everything else, distances, candidate lists and choice info, is derived from the houses and the parameters.
+ * The file is written through a FileChannel in large direct buffer blocks to a temporary file that then replaces
+ * the previous checkpoint, so an interruption while writing leaves the previous checkpoint intact.
+ */
+public class Checkpoint {
+
+    /** First four bytes of a checkpoint file, "ACK1" */
+    private static final int MAGIC = 0x41434B31;
+
+    /** Version of the file layout, 4 adds lazy evaporation and the warm start */
+    private static final int VERSION = 4;
+
+    /** Size of the header after the number of houses, without the best tour */
+    private static final int HEADER_BYTES = 146;
+
+    /** Size of the blocks the pheromone matrix is copied through */
+    private static final int BLOCK_BYTES = 1 << 20;
+
+    /** Number of houses */
+    int size;
+
+    /** Parameters of the run */
+    SolverConfig config;
+
+    /** Number of iterations finished */
+    int iteration;
+
+    /** Number of iterations since the best length last improved */
+    int stalledIterations;
+
+    /** Best tour found so far */
+    int[] bestTour;
+
+    /** Length of the best tour found so far */
+    double bestLength;
+
+    /** MAX-MIN: lower limit of the pheromone levels */
+    double minPheromone;
+
+    /** MAX-MIN: upper limit of the pheromone levels */
+    double maxPheromone;
+
+    /** Ant Colony System: initial level of the colony, which a warm start derives from its tour */
+    double initialPheromone;
+
+    /** Lazy evaporation: factor of the trails not yet multiplied into the stored trails, 1 otherwise */
+    double pheromoneFactor = 1;
+
+    /** Stored trail of the pairs outside the candidate lists, 0 without candidate lists */
+    double backgroundPheromone;
+
+    /** Random number generator of the sequential loops, null in parallel mode */
+    Random random;
+
+    /**
+     * Writes the state of a run.
+     *
+     * @param path       The checkpoint file
+     * @param colony     The colony of the run
+     * @param checkpoint The rest of the state, the pheromones, their factor, the initial level and the trail
+     *                   outside the candidate lists are taken from the colony
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path path, AntColony colony, Checkpoint checkpoint) throws IOException {
+        SolverConfig config = checkpoint.config;
+        byte[] randomState = new byte[0];
+        if (checkpoint.random != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(checkpoint.random);
+            }
+            randomState = bytes.toByteArray();
+        }
+        int size = colony.size;
+        int headerLength = 3 * Integer.BYTES + HEADER_BYTES + size * Integer.BYTES + randomState.length;
+        ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(size);
+        header.putInt(config.variant.ordinal()).putInt(config.storage.ordinal());
+        header.putDouble(config.alpha).putDouble(config.beta).putDouble(config.Q);
+        header.putDouble(config.degradationFactor).putDouble(config.initialPheromone);
+        header.putInt(config.antCountPerIteration).putInt(config.iterationCount);
+        header.putInt(config.candidateCount).putInt(config.localSearchNeighbours);
+        header.put((byte) (config.parallel ? 1 : 0)).putLong(config.seed);
+        header.put((byte) (config.lazyEvaporation ? 1 : 0));
+        header.putInt(config.warmStart != null ? config.warmStart.ordinal() : -1).putDouble(config.warmStartBias);
+        header.putInt(checkpoint.iteration).putInt(checkpoint.stalledIterations);
+        header.putDouble(checkpoint.bestLength);
+        header.putDouble(checkpoint.minPheromone).putDouble(checkpoint.maxPheromone);
+        header.putDouble(colony.initialPheromone).putDouble(colony.pheromones.factor());
+        header.putDouble(colony.pheromones.stored().background());
+        for (int house : checkpoint.bestTour) {
+            header.putInt(house);
+        }
+        header.putInt(randomState.length).put(randomState).flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            writePheromones(channel, colony, isFloat(colony, config.storage));
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the state of a run. The pheromones stay in the file until {@link #restore(Path, AntColony)}.
+     *
+     * @param path   The checkpoint file
+     * @param config Parameters the saved ones are copied into, the others are kept
+     * @return The state of the run
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    static Checkpoint read(Path path, SolverConfig config) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer fixed = readFully(channel, 0, 3 * Integer.BYTES);
+            if (fixed.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint file");
+            }
+            if (fixed.getInt() != VERSION) {
+                throw new IOException(path + " was written by another version");
+            }
+            int size = fixed.getInt();
+            ByteBuffer header = readFully(channel, 3 * Integer.BYTES, HEADER_BYTES + (long) size * Integer.BYTES);
+
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.size = size;
+            SolverConfig saved = config.copy();
+            saved.variant = ColonyVariant.values()[header.getInt()];
+            saved.storage = MatrixStorage.values()[header.getInt()];
+            saved.alpha = header.getDouble();
+            saved.beta = header.getDouble();
+            saved.Q = header.getDouble();
+            saved.degradationFactor = header.getDouble();
+            saved.initialPheromone = header.getDouble();
+            saved.antCountPerIteration = header.getInt();
+            saved.iterationCount = header.getInt();
+            saved.candidateCount = header.getInt();
+            saved.localSearchNeighbours = header.getInt();
+            saved.parallel = header.get() != 0;
+            saved.seed = header.getLong();
+            saved.lazyEvaporation = header.get() != 0;
+            int warmStart = header.getInt();
+            saved.warmStart = warmStart >= 0 ? InitialTour.Heuristic.values()[warmStart] : null;
+            saved.warmStartBias = header.getDouble();
+            checkpoint.config = saved;
+            checkpoint.iteration = header.getInt();
+            checkpoint.stalledIterations = header.getInt();
+            checkpoint.bestLength = header.getDouble();
+            checkpoint.minPheromone = header.getDouble();
+            checkpoint.maxPheromone = header.getDouble();
+            checkpoint.initialPheromone = header.getDouble();
+            checkpoint.pheromoneFactor = header.getDouble();
+            checkpoint.backgroundPheromone = header.getDouble();
+            checkpoint.bestTour = new int[size];
+            for (int i = 0; i < size; i++) {
+                checkpoint.bestTour[i] = header.getInt();
+            }
+            int randomLength = header.getInt();
+            if (randomLength > 0) {
+                ByteBuffer randomState = readFully(channel, 3 * Integer.BYTES + header.limit(), randomLength);
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(randomState.array()))) {
+                    checkpoint.random = (Random) in.readObject();
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException(path + " holds no valid random number generator", e);
+                }
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Loads the saved pheromones and best tour into a colony built with the saved parameters.
+     *
+     * @param path   The checkpoint file the state was read from
+     * @param colony The colony
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the colony has a different number of houses or evaporates otherwise
+     */
+    void restore(Path path, AntColony colony) throws IOException {
+        if (colony.size != size) {
+            throw new IllegalArgumentException("The checkpoint has " + size + " houses, the map " + colony.size);
+        }
+        if (config.lazyEvaporation != (colony.pheromones.stored() != colony.pheromones)) {
+            throw new IllegalArgumentException("The checkpoint was written "
+                    + (config.lazyEvaporation ? "with" : "without") + " lazy evaporation, the colony differs");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boolean floatEntries = isFloat(colony, config.storage);
+            long offset = channel.size() - pheromoneBytes(size, colony.candidateCount, floatEntries);
+            readPheromones(channel, offset, colony, floatEntries);
+        }
+        colony.pheromones.stored().setBackground(backgroundPheromone);
+        colony.pheromones.restoreFactor(pheromoneFactor);
+        colony.initialPheromone = initialPheromone;
+        if (bestLength < Double.MAX_VALUE) {
+            colony.bestLength = bestLength;
+            System.arraycopy(bestTour, 0, colony.bestTour, 0, size);
+        }
+        colony.iteration = iteration;
+        colony.minPheromone = minPheromone;
+        colony.maxPheromone = maxPheromone;
+        colony.refreshChoiceInfo();
+    }
+
+    /**
+     * Returns whether the pheromones of a colony are kept as floats. Candidate lists always keep doubles.
+     *
+     * @param colony  The colony
+     * @param storage The storage
+     * @return true for the float storages without candidate lists
+     */
+    private static boolean isFloat(AntColony colony, MatrixStorage storage) {
+        return colony.candidateCount == 0
+                && (storage == MatrixStorage.FLOAT_TRIANGLE || storage == MatrixStorage.OFF_HEAP_FLOAT_TRIANGLE);
+    }
+
+    /**
+     * Returns the size of the saved pheromones.
+     *
+     * @param size           Number of houses
+     * @param candidateCount Number of candidates per house, 0 when the triangle is saved
+     * @param floatEntries   Whether the entries are floats
+     * @return The size in bytes
+     */
+    private static long pheromoneBytes(int size, int candidateCount, boolean floatEntries) {
+        long entries = candidateCount > 0 ? (long) size * candidateCount : SymmetricMatrix.triangleLength(size);
+        return entries * (floatEntries ? Float.BYTES : Double.BYTES);
+    }
+
+    /**
+     * Writes the stored pheromones of a colony row by row, the upper triangle or the candidate lists.
+     *
+     * @param channel      The file
+     * @param colony       The colony
+     * @param floatEntries Whether the entries are written as floats
+     * @throws IOException if the file cannot be written
+     */
+    private static void writePheromones(FileChannel channel, AntColony colony, boolean floatEntries)
+            throws IOException {
+        int size = colony.size;
+        int candidateCount = colony.candidateCount;
+        int entryBytes = floatEntries ? Float.BYTES : Double.BYTES;
+        SymmetricMatrix pheromones = colony.pheromones.stored();
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        double[] row = new double[candidateCount > 0 ? candidateCount : size];
+        for (int i = 0; i < size; i++) {
+            int count;
+            if (candidateCount > 0) {
+                count = candidateCount;
+                pheromones.getCandidateRow(i, colony.candidates, candidateCount, row);
+            } else {
+                count = size - i;
+                pheromones.getRow(i, i, count, row);
+            }
+            for (int k = 0; k < count; k++) {
+                if (block.remaining() < entryBytes) {
+                    block.flip();
+                    writeFully(channel, block);
+                    block.clear();
+                }
+                if (floatEntries) {
+                    block.putFloat((float) row[k]);
+                } else {
+                    block.putDouble(row[k]);
+                }
+            }
+        }
+        block.flip();
+        writeFully(channel, block);
+    }
+
+    /**
+     * Reads the stored pheromones of a colony row by row, the upper triangle or the candidate lists.
+     *
+     * @param channel      The file
+     * @param offset       Position of the pheromones in the file
+     * @param colony       The colony
+     * @param floatEntries Whether the entries are stored as floats
+     * @throws IOException if the file cannot be read
+     */
+    private static void readPheromones(FileChannel channel, long offset, AntColony colony, boolean floatEntries)
+            throws IOException {
+        int size = colony.size;
+        int candidateCount = colony.candidateCount;
+        int entryBytes = floatEntries ? Float.BYTES : Double.BYTES;
+        SymmetricMatrix pheromones = colony.pheromones.stored();
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        block.limit(0);
+        long position = offset;
+        double[] row = new double[candidateCount > 0 ? candidateCount : size];
+        for (int i = 0; i < size; i++) {
+            int count = candidateCount > 0 ? candidateCount : size - i;
+            for (int k = 0; k < count; k++) {
+                if (block.remaining() < entryBytes) {
+                    block.compact();
+                    while (block.position() < entryBytes) {
+                        int read = channel.read(block, position);
+                        if (read < 0) {
+                            throw new IOException("The checkpoint file is truncated");
+                        }
+                        position += read;
+                    }
+                    block.flip();
+                }
+                row[k] = floatEntries ? block.getFloat() : block.getDouble();
+            }
+            if (candidateCount > 0) {
+                pheromones.setCandidateRow(i, colony.candidates, candidateCount, row);
+            } else {
+                pheromones.setRow(i, i, count, row);
+            }
+        }
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer.
+     *
+     * @param channel The file
+     * @param buffer  The bytes
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads a range of a file.
+     *
+     * @param channel  The file
+     * @param position Start of the range
+     * @param length   Length of the range
+     * @return The bytes as a little-endian buffer
+     * @throws IOException if the file is too short or cannot be read
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, long length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IOException("The checkpoint file is truncated");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("The checkpoint file is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+}
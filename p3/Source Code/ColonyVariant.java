@@ -0,0 +1,20 @@
+/**
+ * Pheromone update rules the Ant Colony Optimization method can use.
+ */
+public enum ColonyVariant {
+
+    /** Every ant deposits Q / length on its tour, then all trails evaporate */
+    ANT_SYSTEM,
+
+    /**
+     * MAX-MIN Ant System: after all trails evaporate only the iteration-best or global-best tour deposits,
+     * and every trail is kept within [minimum, maximum] so no edge becomes impossible or certain
+     */
+    MAX_MIN,
+
+    /**
+     * Ant Colony System: ants mostly exploit the best edge, wear down the trails they walk on
+     * with a local update, and only the global-best tour deposits at the end of an iteration
+     */
+    ANT_COLONY_SYSTEM
+}
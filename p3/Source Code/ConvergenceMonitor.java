@@ -0,0 +1,369 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Records the metrics of every iteration of a colony, passes them to listeners and decides when to stop.
+ * The colony loop reports every finished iteration with {@link #iterationFinished(double, double)},
+ * which returns true as soon as one of the configured stopping rules applies:
+ * no improvement of the best tour for a number of iterations, a target tour length, a time budget or deadline,
+ * or a cancellation from another thread.
+ * The convergence of the pheromone matrix is measured with the lambda-branching factor and the
+ * normalized entropy of the trails around every house. Both take O(n^2) per iteration,
+ * or O(n k) when the colony uses candidate lists, in which case only candidate edges are looked at,
+ * so they are only computed once asked for with {@link #computeStatisticsEvery(int)}.
+ */
+public class ConvergenceMonitor {
+
+    /** Share of the pheromone range of a house an edge must reach to count for the branching factor */
+    private static final double LAMBDA = 0.05;
+
+    /**
+     * Rules that can end a run early.
+     */
+    enum StopReason {
+
+        /** The best tour did not improve for the configured number of iterations */
+        STALLED,
+
+        /** A tour at least as short as the target length was found */
+        TARGET_REACHED,
+
+        /** The time budget ran out or the deadline passed */
+        TIME_BUDGET,
+
+        /** The run was cancelled from another thread */
+        CANCELLED
+    }
+
+    /** The colony whose pheromone matrix is measured */
+    private final AntColony colony;
+
+    /** Listeners notified after every iteration */
+    private final ArrayList<IterationListener> listeners = new ArrayList<>();
+
+    /** Metrics of every iteration so far */
+    private final ArrayList<IterationStats> history = new ArrayList<>();
+
+    /** Number of iterations without improvement after which the run stops, 0 for no limit */
+    private int stallLimit;
+
+    /** Tour length at or below which the run stops, 0 for no target */
+    private double targetLength;
+
+    /** Time at which the run stops in {@link System#nanoTime()} terms, only used if hasDeadline is set */
+    private long deadline;
+
+    /** Whether the run stops at the deadline */
+    private boolean hasDeadline;
+
+    /** Set by another thread to stop the run after the ant that is being built */
+    private volatile boolean cancelled;
+
+    /** The pheromone statistics are computed every this many iterations, 0 to never compute them */
+    private int statisticsInterval;
+
+    /** Iterations run before this monitor was created, by the run a checkpoint was taken from */
+    private int firstIteration;
+
+    /** Time the monitor was started */
+    private final long startTime;
+
+    /** Time the current iteration started */
+    private long iterationStart;
+
+    /** Best length seen so far */
+    private double bestLength = Double.MAX_VALUE;
+
+    /** Number of iterations since the best length last improved */
+    private int stalledIterations;
+
+    /** The rule that stopped the run, null while it runs */
+    private StopReason stopReason;
+
+    /**
+     * Constructs a monitor for the given colony and starts its clock.
+     *
+     * @param colony The colony whose iterations are reported
+     */
+    ConvergenceMonitor(AntColony colony) {
+        this.colony = colony;
+        this.startTime = System.nanoTime();
+        this.iterationStart = startTime;
+    }
+
+    /**
+     * Stops the run once the best tour has not improved for the given number of iterations.
+     *
+     * @param iterations Number of iterations without improvement
+     */
+    void stopAfterStall(int iterations) {
+        this.stallLimit = iterations;
+    }
+
+    /**
+     * Stops the run once a tour of at most the given length is found.
+     *
+     * @param length The target length
+     */
+    void stopAtLength(double length) {
+        this.targetLength = length;
+    }
+
+    /**
+     * Stops the run once the given time has passed since the monitor was created.
+     *
+     * @param millis The time budget in milliseconds
+     */
+    void stopAfterMillis(long millis) {
+        if (millis > 0) {
+            stopAt(startTime + millis * 1_000_000);
+        }
+    }
+
+    /**
+     * Stops the run once the given point in time has passed. With several deadlines the earliest one applies.
+     *
+     * @param deadlineNanos The deadline in {@link System#nanoTime()} terms
+     */
+    void stopAt(long deadlineNanos) {
+        if (!hasDeadline || deadlineNanos - deadline < 0) {
+            deadline = deadlineNanos;
+        }
+        hasDeadline = true;
+    }
+
+    /**
+     * Stops the run after the ant that is currently being built. May be called from any thread.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the deadline has passed or the run was cancelled, so that the loops can cut an iteration
+     * short between two ants instead of waiting for all of them. The stop reason is set when the cut iteration
+     * is reported to {@link #iterationFinished(double, double)}. May be called from the worker threads.
+     *
+     * @return true if the current iteration should end after the ant that is being built
+     */
+    boolean interrupted() {
+        return cancelled || (hasDeadline && System.nanoTime() - deadline >= 0);
+    }
+
+    /**
+     * Sets how often the pheromone statistics are computed, they are NaN in the other iterations.
+     * By default they are never computed.
+     *
+     * @param interval Every this many iterations, 0 to never compute them
+     */
+    void computeStatisticsEvery(int interval) {
+        this.statisticsInterval = interval;
+    }
+
+    /**
+     * Adds a listener that is notified after every iteration.
+     * The pheromone statistics it receives are NaN unless {@link #computeStatisticsEvery(int)} was called.
+     *
+     * @param listener The listener
+     */
+    void addListener(IterationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Records a finished iteration, notifies the listeners and checks the stopping rules.
+     *
+     * @param iterationBestLength Length of the best tour built in the iteration
+     * @param globalBestLength    Length of the best tour found so far
+     * @return true if the run should stop
+     */
+    boolean iterationFinished(double iterationBestLength, double globalBestLength) {
+        long now = System.nanoTime();
+        int iteration = firstIteration + history.size();
+        double branchingFactor = Double.NaN;
+        double entropy = Double.NaN;
+        if (statisticsInterval > 0 && iteration % statisticsInterval == 0) {
+            double[] statistics = pheromoneStatistics();
+            branchingFactor = statistics[0];
+            entropy = statistics[1];
+        }
+        IterationStats stats = new IterationStats(iteration, iterationBestLength, globalBestLength, branchingFactor,
+                entropy, now - iterationStart, now - startTime);
+        history.add(stats);
+        for (IterationListener listener : listeners) {
+            listener.iterationFinished(stats);
+        }
+
+        if (globalBestLength < bestLength) {
+            bestLength = globalBestLength;
+            stalledIterations = 0;
+        } else {
+            stalledIterations++;
+        }
+        if (targetLength > 0 && bestLength <= targetLength) {
+            stopReason = StopReason.TARGET_REACHED;
+        } else if (stallLimit > 0 && stalledIterations >= stallLimit) {
+            stopReason = StopReason.STALLED;
+        } else if (hasDeadline && now - deadline >= 0) {
+            stopReason = StopReason.TIME_BUDGET;
+        } else if (cancelled) {
+            stopReason = StopReason.CANCELLED;
+        }
+        // Time the next iteration from here, so the statistics and listeners are not counted
+        iterationStart = System.nanoTime();
+        return stopReason != null;
+    }
+
+    /**
+     * Computes the lambda-branching factor and the normalized entropy of the pheromone matrix.
+     * For every house the edges to all other houses, or to its candidates, are looked at.
+     *
+     * @return The average branching factor and the average normalized entropy
+     */
+    private double[] pheromoneStatistics() {
+        int size = colony.size;
+        int edgeCount = colony.candidateCount > 0 ? colony.candidateCount : size - 1;
+        if (edgeCount < 2) {
+            return new double[]{edgeCount, 0};
+        }
+        double[] levels = new double[edgeCount];
+        double branching = 0;
+        double entropy = 0;
+        for (int i = 0; i < size; i++) {
+            double min = Double.MAX_VALUE;
+            double max = 0;
+            double total = 0;
+            if (colony.candidateCount > 0) {
+                colony.pheromones.getCandidateRow(i, colony.candidates, edgeCount, levels);
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                double level = colony.candidateCount > 0 ? levels[e] : colony.pheromone(i, e < i ? e : e + 1);
+                levels[e] = level;
+                min = Math.min(min, level);
+                max = Math.max(max, level);
+                total += level;
+            }
+            double threshold = min + LAMBDA * (max - min);
+            double rowEntropy = 0;
+            for (double level : levels) {
+                if (level >= threshold) {
+                    branching++;
+                }
+                if (level > 0) {
+                    double share = level / total;
+                    rowEntropy -= share * Math.log(share);
+                }
+            }
+            entropy += rowEntropy / Math.log(edgeCount);
+        }
+        return new double[]{branching / size, entropy / size};
+    }
+
+    /**
+     * Returns the rule that stopped the run.
+     *
+     * @return The stop reason, or null if no rule applied
+     */
+    StopReason stopReason() {
+        return stopReason;
+    }
+
+    /**
+     * Returns the number of iterations recorded so far.
+     *
+     * @return The number of iterations
+     */
+    int iterations() {
+        return firstIteration + history.size();
+    }
+
+    /**
+     * Returns the number of iterations since the best length last improved.
+     *
+     * @return The number of iterations
+     */
+    int stalledIterations() {
+        return stalledIterations;
+    }
+
+    /**
+     * Continues the count of a run resumed from a checkpoint, so the iteration numbers and the stall rule
+     * carry on where the run stopped. The time budget starts again.
+     *
+     * @param iterations        Number of iterations finished before
+     * @param bestLength        Best length found before
+     * @param stalledIterations Number of iterations since the best length last improved
+     */
+    void resume(int iterations, double bestLength, int stalledIterations) {
+        this.firstIteration = iterations;
+        this.bestLength = bestLength;
+        this.stalledIterations = stalledIterations;
+    }
+
+    /**
+     * Writes the metrics of every iteration to a file, as JSON if its name ends with .json and as CSV otherwise.
+     *
+     * @param path The file to write
+     * @throws IOException if the file cannot be written
+     */
+    void export(Path path) throws IOException {
+        boolean json = path.getFileName().toString().toLowerCase().endsWith(".json");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            if (json) {
+                writeJson(writer);
+            } else {
+                writeCsv(writer);
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics as CSV with a header line, metrics that were not computed are left empty.
+     *
+     * @param writer The output
+     */
+    private void writeCsv(PrintWriter writer) {
+        writer.println("iteration,iteration_best,global_best,branching_factor,entropy,iteration_ms,elapsed_ms");
+        for (IterationStats stats : history) {
+            writer.println(String.join(",", Integer.toString(stats.iteration), number(stats.iterationBestLength, ""),
+                    number(stats.globalBestLength, ""), number(stats.branchingFactor, ""), number(stats.entropy, ""),
+                    number(stats.iterationNanos / 1e6, ""), number(stats.elapsedNanos / 1e6, "")));
+        }
+    }
+
+    /**
+     * Writes the metrics as a JSON array of objects, metrics that were not computed are null.
+     *
+     * @param writer The output
+     */
+    private void writeJson(PrintWriter writer) {
+        writer.println("[");
+        for (int i = 0; i < history.size(); i++) {
+            IterationStats stats = history.get(i);
+            writer.print("  {\"iteration\": " + stats.iteration
+                    + ", \"iterationBest\": " + number(stats.iterationBestLength, "null")
+                    + ", \"globalBest\": " + number(stats.globalBestLength, "null")
+                    + ", \"branchingFactor\": " + number(stats.branchingFactor, "null")
+                    + ", \"entropy\": " + number(stats.entropy, "null")
+                    + ", \"iterationMs\": " + number(stats.iterationNanos / 1e6, "null")
+                    + ", \"elapsedMs\": " + number(stats.elapsedNanos / 1e6, "null") + "}");
+            writer.println(i < history.size() - 1 ? "," : "");
+        }
+        writer.println("]");
+    }
+
+    /**
+     * Formats a metric.
+     *
+     * @param value   The value
+     * @param missing Text written when the value is NaN
+     * @return The formatted value
+     */
+    private static String number(double value, String missing) {
+        return Double.isNaN(value) ? missing : String.format(Locale.ROOT, "%.6f", value);
+    }
+}
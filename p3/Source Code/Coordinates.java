@@ -0,0 +1,516 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * House coordinates loaded into primitive arrays, house i has the coordinates (xs[i], ys[i]).
+ * Three file formats are read, all through memory-mapped files rather than line by line:
+ * <ul>
+ *     <li>Plain text with one {@code x,y} pair per line, the format of the test cases</li>
+ *     <li>TSPLIB {@code .tsp} files with {@code EDGE_WEIGHT_TYPE : EUC_2D}, only the coordinates are used,
+ *     distances are still computed without rounding</li>
+ *     <li>A binary format written by {@link #writeBinary(Path)}: a magic number, the number of houses,
+ *     then all x-coordinates and all y-coordinates as little-endian doubles</li>
+ * </ul>
+ * Text numbers are parsed straight from the mapped bytes. Numbers with at most 15 significant digits
+ * are computed exactly from their digits, longer ones go through {@link Double#parseDouble(String)},
+ * so every value equals what parseDouble would return.
+ */
+public class Coordinates {
+
+    /** First four bytes of a binary coordinate file, "HSE1" */
+    private static final int MAGIC = 0x48534531;
+
+    /** Size of the binary header: magic number and number of houses */
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    /** Largest part of a text file that is mapped at once */
+    private static final long WINDOW_BYTES = 1 << 30;
+
+    /** Longest number token that is accepted */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /** Powers of ten that are exact doubles, used by the fast number path */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /** The x-coordinates of the houses */
+    final double[] xs;
+
+    /** The y-coordinates of the houses */
+    final double[] ys;
+
+    /**
+     * Constructs coordinates from the given arrays.
+     *
+     * @param xs The x-coordinates of the houses
+     * @param ys The y-coordinates of the houses
+     */
+    Coordinates(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Returns the number of houses.
+     *
+     * @return The number of houses
+     */
+    int size() {
+        return xs.length;
+    }
+
+    /**
+     * Reads a coordinate file. Binary files are recognized by their magic number,
+     * TSPLIB files by the {@code .tsp} extension, anything else is read as {@code x,y} lines.
+     *
+     * @param path The file to read
+     * @return The coordinates in the file
+     * @throws IOException if the file cannot be read or is malformed
+     */
+    static Coordinates read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() >= HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                if (header.getInt(0) == MAGIC) {
+                    return readBinary(channel, header.getInt(Integer.BYTES));
+                }
+            }
+            TextReader reader = new TextReader(channel);
+            if (path.getFileName().toString().toLowerCase().endsWith(".tsp")) {
+                return readTsplib(reader);
+            }
+            return readLines(reader);
+        }
+    }
+
+    /**
+     * Writes the coordinates in the binary format, which {@link #read(Path)} maps back without parsing.
+     *
+     * @param path The file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    void writeBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            int size = size();
+            long arrayBytes = (long) size * Double.BYTES;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(size).flip();
+            channel.write(header, 0);
+            channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, arrayBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(xs);
+            channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + arrayBytes, arrayBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(ys);
+        }
+    }
+
+    /**
+     * Maps the coordinate arrays of a binary file.
+     *
+     * @param channel The open file
+     * @param size    Number of houses given in the header
+     * @return The coordinates in the file
+     * @throws IOException if the file is shorter than the header says
+     */
+    private static Coordinates readBinary(FileChannel channel, int size) throws IOException {
+        long arrayBytes = (long) size * Double.BYTES;
+        if (size < 0 || channel.size() < HEADER_BYTES + 2 * arrayBytes) {
+            throw new IOException("Binary coordinate file is truncated");
+        }
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, arrayBytes)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(xs);
+        channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + arrayBytes, arrayBytes)
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(ys);
+        return new Coordinates(xs, ys);
+    }
+
+    /**
+     * Parses {@code x,y} lines, blank lines are skipped.
+     *
+     * @param reader Reader over the file
+     * @return The coordinates in the file
+     * @throws IOException if a line is not a pair of numbers
+     */
+    private static Coordinates readLines(TextReader reader) throws IOException {
+        CoordinateList list = new CoordinateList(1024);
+        while (reader.skipBlankLines()) {
+            double x = reader.number();
+            reader.expect(',');
+            double y = reader.number();
+            reader.endOfLine();
+            list.add(x, y);
+        }
+        return list.toCoordinates();
+    }
+
+    /**
+     * Parses a TSPLIB file: the specification lines up to {@code NODE_COORD_SECTION},
+     * then one {@code id x y} line per house until {@code EOF} or the end of the file.
+     *
+     * @param reader Reader over the file
+     * @return The coordinates in the file, in the order they are listed
+     * @throws IOException if the file is not a EUC_2D instance or a line is malformed
+     */
+    private static Coordinates readTsplib(TextReader reader) throws IOException {
+        int dimension = 0;
+        while (true) {
+            String line = reader.line();
+            if (line == null) {
+                throw new IOException("TSPLIB file has no NODE_COORD_SECTION");
+            }
+            line = line.trim();
+            if (line.startsWith("NODE_COORD_SECTION")) {
+                break;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (key.equals("DIMENSION")) {
+                dimension = Integer.parseInt(value);
+            } else if (key.equals("EDGE_WEIGHT_TYPE") && !value.equals("EUC_2D")) {
+                throw new IOException("Unsupported TSPLIB edge weight type " + value + ", only EUC_2D is read");
+            }
+        }
+
+        CoordinateList list = new CoordinateList(Math.max(dimension, 16));
+        while (reader.skipBlankLines() && !reader.endOfFileMarker()) {
+            reader.number(); // House id, houses are numbered in the order they are listed
+            double x = reader.number();
+            double y = reader.number();
+            reader.endOfLine();
+            list.add(x, y);
+        }
+        if (dimension > 0 && list.size != dimension) {
+            throw new IOException("TSPLIB file lists " + list.size + " houses, DIMENSION is " + dimension);
+        }
+        return list.toCoordinates();
+    }
+
+    /**
+     * Parses a number token.
+     *
+     * @param token  Characters of the token
+     * @param length Number of characters
+     * @return The value, equal to {@link Double#parseDouble(String)} of the token
+     * @throws NumberFormatException if the token is not a number
+     */
+    static double parseNumber(char[] token, int length) {
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (token[0] == '-' || token[0] == '+')) {
+            negative = token[0] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        boolean anyDigit = false;
+        for (; i < length; i++) {
+            char c = token[i];
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (mantissa != 0 || c != '0') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                }
+                if (point) {
+                    scale++;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                // Exponents and anything unusual go through the library parser
+                return Double.parseDouble(new String(token, 0, length));
+            }
+        }
+        if (!anyDigit || digits > 15 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(token, 0, length));
+        }
+        // Both operands are exact, so the single division rounds correctly like parseDouble
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Coordinate arrays that grow while a text file is parsed.
+     */
+    private static final class CoordinateList {
+
+        /** The x-coordinates read so far */
+        private double[] xs;
+
+        /** The y-coordinates read so far */
+        private double[] ys;
+
+        /** Number of houses read so far */
+        private int size;
+
+        /**
+         * Constructs an empty list.
+         *
+         * @param capacity Initial capacity
+         */
+        CoordinateList(int capacity) {
+            this.xs = new double[capacity];
+            this.ys = new double[capacity];
+        }
+
+        /**
+         * Appends a house.
+         *
+         * @param x The x-coordinate
+         * @param y The y-coordinate
+         */
+        void add(double x, double y) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, 2 * size);
+                ys = Arrays.copyOf(ys, 2 * size);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        /**
+         * Trims the arrays to the number of houses.
+         *
+         * @return The coordinates read
+         */
+        Coordinates toCoordinates() {
+            return new Coordinates(Arrays.copyOf(xs, size), Arrays.copyOf(ys, size));
+        }
+    }
+
+    /**
+     * Reads the bytes of a text file through memory-mapped windows of up to 1 GB,
+     * so files larger than a single mapping are read as well.
+     */
+    private static final class TextReader {
+
+        /** The open file */
+        private final FileChannel channel;
+
+        /** Size of the file */
+        private final long fileSize;
+
+        /** The mapped window */
+        private MappedByteBuffer window;
+
+        /** File offset of the first byte of the window */
+        private long windowStart;
+
+        /** Position of the next byte within the window */
+        private int position;
+
+        /** Number of the line being read, for error messages */
+        private int lineNumber = 1;
+
+        /** Characters of the current number token */
+        private final char[] token = new char[MAX_TOKEN_LENGTH];
+
+        /**
+         * Constructs a reader at the start of the file.
+         *
+         * @param channel The open file
+         * @throws IOException if the file cannot be mapped
+         */
+        TextReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            map(0);
+        }
+
+        /**
+         * Maps the window starting at the given file offset.
+         *
+         * @param start File offset of the window
+         * @throws IOException if the file cannot be mapped
+         */
+        private void map(long start) throws IOException {
+            windowStart = start;
+            position = 0;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, fileSize - start));
+        }
+
+        /**
+         * Returns the next byte without consuming it.
+         *
+         * @return The next byte, or -1 at the end of the file
+         * @throws IOException if the next window cannot be mapped
+         */
+        private int peek() throws IOException {
+            if (position == window.limit()) {
+                if (windowStart + position == fileSize) {
+                    return -1;
+                }
+                map(windowStart + position);
+            }
+            return window.get(position);
+        }
+
+        /**
+         * Skips spaces and tabs.
+         *
+         * @return The next byte after them, not consumed, or -1 at the end of the file
+         * @throws IOException if the next window cannot be mapped
+         */
+        private int skipSpaces() throws IOException {
+            int c = peek();
+            while (c == ' ' || c == '\t') {
+                position++;
+                c = peek();
+            }
+            return c;
+        }
+
+        /**
+         * Skips blank lines.
+         *
+         * @return false if the end of the file was reached
+         * @throws IOException if the next window cannot be mapped
+         */
+        boolean skipBlankLines() throws IOException {
+            while (true) {
+                int c = skipSpaces();
+                if (c == -1) {
+                    return false;
+                }
+                if (c != '\n' && c != '\r') {
+                    return true;
+                }
+                position++;
+                if (c == '\n') {
+                    lineNumber++;
+                }
+            }
+        }
+
+        /**
+         * Reads a number token, leading spaces are skipped.
+         *
+         * @return The value of the token
+         * @throws IOException if there is no valid number
+         */
+        double number() throws IOException {
+            int c = skipSpaces();
+            int length = 0;
+            while (c != -1 && c != ',' && c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                if (length == MAX_TOKEN_LENGTH) {
+                    throw error("number is too long");
+                }
+                token[length++] = (char) c;
+                position++;
+                c = peek();
+            }
+            try {
+                return parseNumber(token, length);
+            } catch (NumberFormatException e) {
+                throw error("invalid number '" + new String(token, 0, length) + "'");
+            }
+        }
+
+        /**
+         * Consumes the given separator, surrounded by optional spaces.
+         *
+         * @param separator The expected character
+         * @throws IOException if the separator is missing
+         */
+        void expect(char separator) throws IOException {
+            if (skipSpaces() != separator) {
+                throw error("expected '" + separator + "'");
+            }
+            position++;
+        }
+
+        /**
+         * Consumes the end of the current line, trailing spaces are allowed.
+         *
+         * @throws IOException if the line has more content
+         */
+        void endOfLine() throws IOException {
+            int c = skipSpaces();
+            if (c == '\r') {
+                position++;
+                c = peek();
+            }
+            if (c == '\n') {
+                position++;
+                lineNumber++;
+            } else if (c != -1) {
+                throw error("unexpected content at the end of the line");
+            }
+        }
+
+        /**
+         * Checks whether the current line is the TSPLIB {@code EOF} marker.
+         *
+         * @return true if the line reads "EOF", in which case it is consumed
+         * @throws IOException if the line starts like the marker but is something else
+         */
+        boolean endOfFileMarker() throws IOException {
+            if (peek() != 'E') {
+                return false;
+            }
+            int markerLine = lineNumber;
+            if (!line().trim().equals("EOF")) {
+                throw new IOException("Line " + markerLine + ": expected a house or EOF");
+            }
+            return true;
+        }
+
+        /**
+         * Reads the rest of the current line as a string, used for the short TSPLIB header lines.
+         *
+         * @return The line without its line break, or null at the end of the file
+         * @throws IOException if the next window cannot be mapped
+         */
+        String line() throws IOException {
+            int c = peek();
+            if (c == -1) {
+                return null;
+            }
+            StringBuilder line = new StringBuilder();
+            while (c != -1 && c != '\n') {
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+                position++;
+                c = peek();
+            }
+            if (c == '\n') {
+                position++;
+                lineNumber++;
+            }
+            return line.toString();
+        }
+
+        /**
+         * Creates an exception that points at the current line.
+         *
+         * @param message What is wrong
+         * @return The exception
+         */
+        private IOException error(String message) {
+            return new IOException("Line " + lineNumber + ": " + message);
+        }
+    }
+}
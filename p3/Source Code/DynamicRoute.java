@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+
+/**
+ * A route that is kept up to date while houses are added and removed, without solving from scratch.
+ * The first route is found by a full Ant Colony Optimization run. After that every change is handled in three steps:
+ * the house is inserted where it lengthens the tour the least or cut out of the tour, the tour is repaired
+ * with 2-opt and Or-opt moves around the change, and a short warm-started run continues from the repaired tour
+ * on a colony that keeps the trails learned so far. This costs {@link SolverConfig#reoptimizeIterations}
+ * iterations per change instead of a full run.
+ */
+public class DynamicRoute {
+
+    /** Neighbours the repair moves are tried towards */
+    private static final int REPAIR_NEIGHBOURS = 10;
+
+    /** Parameters of the runs */
+    private final SolverConfig config;
+
+    /** The houses of the route, indices of the tour refer to this list */
+    final ArrayList<House> houses;
+
+    /** The colony holding the trails learned so far */
+    AntColony colony;
+
+    /** The current tour as house indices */
+    int[] tour;
+
+    /** Length of the current tour */
+    double length;
+
+    /** Number of changes so far, varies the seed of the warm-started runs */
+    private int changes;
+
+    /**
+     * Solves the initial route with a full run.
+     *
+     * @param houses List of houses, copied
+     * @param config Parameters of the runs
+     */
+    DynamicRoute(ArrayList<House> houses, SolverConfig config) {
+        this.config = config;
+        this.houses = new ArrayList<>(houses);
+        AcoSolver solver = new AcoSolver(this.houses, config);
+        this.tour = solver.solve().clone();
+        this.length = solver.bestLength;
+        this.colony = solver.colony;
+    }
+
+    /**
+     * Returns the parameters of a warm-started run after a change. The rules that belong to the initial run,
+     * the target length, the time budget and the files, are cleared, so a re-plan does not run on a budget
+     * meant for the whole run or overwrite its checkpoint with a colony of another size.
+     *
+     * @param seed Seed of the run
+     * @return The parameters
+     */
+    private SolverConfig replanConfig(long seed) {
+        SolverConfig warm = config.copy();
+        warm.iterationCount = config.reoptimizeIterations;
+        warm.seed = seed;
+        warm.targetDistance = 0;
+        warm.timeBudgetMillis = 0;
+        warm.telemetryFile = null;
+        warm.checkpointFile = null;
+        warm.resume = false;
+        return warm;
+    }
+
+    /**
+     * Adds a house to the route and re-plans.
+     *
+     * @param house The new house
+     * @return Index of the new house
+     */
+    int addHouse(House house) {
+        int index = houses.size();
+        houses.add(house);
+        int[] previousIndex = new int[houses.size()];
+        for (int i = 0; i < index; i++) {
+            previousIndex[i] = i;
+        }
+        previousIndex[index] = -1;
+        AntColony next = AcoSolver.buildColony(houses, config);
+
+        // Cheapest insertion: between the neighbours where the detour is shortest
+        int size = tour.length;
+        int position = 0;
+        double bestIncrease = Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            int from = tour[i];
+            int to = tour[(i + 1) % size];
+            double increase = next.distances.get(from, index) + next.distances.get(index, to)
+                    - next.distances.get(from, to);
+            if (increase < bestIncrease) {
+                bestIncrease = increase;
+                position = i + 1;
+            }
+        }
+        int[] nextTour = new int[size + 1];
+        System.arraycopy(tour, 0, nextTour, 0, position);
+        nextTour[position] = index;
+        System.arraycopy(tour, position, nextTour, position + 1, size - position);
+
+        replan(next, previousIndex, nextTour);
+        return index;
+    }
+
+    /**
+     * Removes a house from the route and re-plans. Houses after it in the houses list move down one index.
+     *
+     * @param index Index of the house to remove
+     * @throws IllegalArgumentException if there is no house with the given index
+     */
+    void removeHouse(int index) {
+        if (index < 0 || index >= houses.size()) {
+            throw new IllegalArgumentException("No house with index " + index);
+        }
+        houses.remove(index);
+        int[] previousIndex = new int[houses.size()];
+        for (int i = 0; i < previousIndex.length; i++) {
+            previousIndex[i] = i < index ? i : i + 1;
+        }
+        AntColony next = AcoSolver.buildColony(houses, config);
+
+        // Cut the house out of the tour, its neighbours become adjacent
+        int[] nextTour = new int[tour.length - 1];
+        int position = 0;
+        for (int house : tour) {
+            if (house != index) {
+                nextTour[position++] = house < index ? house : house - 1;
+            }
+        }
+
+        replan(next, previousIndex, nextTour);
+    }
+
+    /**
+     * Repairs the changed tour, takes over the trails and continues with a short run.
+     *
+     * @param next          The colony over the changed houses
+     * @param previousIndex Index of every house in the previous colony, -1 for a new house
+     * @param nextTour      The changed tour over the new indices
+     */
+    private void replan(AntColony next, int[] previousIndex, int[] nextTour) {
+        int size = nextTour.length;
+        if (size == 0) {
+            colony = next;
+            tour = nextTour;
+            length = 0;
+            return;
+        }
+        double nextLength = next.tourLength(nextTour);
+
+        // Local repair: 2-opt and Or-opt moves until the changed tour is locally optimal again
+        int neighbourCount = Math.min(REPAIR_NEIGHBOURS, size - 1);
+        if (neighbourCount > 0) {
+            LocalSearch repair = new LocalSearch(size, next.distances, next.nearestNeighbours(neighbourCount),
+                    neighbourCount);
+            nextLength = repair.improve(nextTour, nextLength);
+        }
+
+        // Warm start: the learned trails, reinforced along the repaired tour, which is the tour to beat
+        next.inheritPheromones(colony, previousIndex);
+        next.acceptMigrant(nextTour, nextLength, config.Q, config.degradationFactor);
+        next.pheromonesChanged();
+
+        AcoSolver solver = new AcoSolver(next, replanConfig(config.seed + ++changes));
+        int[] solved = solver.solve();
+        colony = next;
+        if (solver.bestLength < nextLength) {
+            tour = solved.clone();
+            length = solver.bestLength;
+        } else {
+            tour = nextTour;
+            length = nextLength;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Exact TSP solver using Held-Karp dynamic programming over bitmask subsets.
+ * House 0 is the start, every other house is a bit of the subset mask, and the cost of the shortest path
+ * from house 0 through exactly the houses of a subset ending at house j is stored in one flat array.
+ * Subsets are processed in layers of equal size, the subsets of a layer only read the previous layer,
+ * so every layer is relaxed in parallel. Runs in O(2^n n^2) time and O(2^n n) memory,
+ * which limits the number of houses by the heap, see {@link #maxSize()}.
+ */
+public class HeldKarp {
+
+    /** Largest number of houses the solver accepts with a large enough heap, the table takes 3.2 GB at this size */
+    static final int MAX_SIZE = 25;
+
+    /** Number of houses */
+    private final int size;
+
+    /** Flat distance matrix, the distance between houses i and j is stored at [i * size + j] */
+    private final double[] distances;
+
+    /** Number of houses other than the start, one bit each */
+    private final int bits;
+
+    /** Cost table, the path through subset mask ending at house j + 1 is stored at [mask * bits + j] */
+    private double[] costs;
+
+    /** Length of the optimal tour after solving */
+    double bestLength;
+
+    /**
+     * Constructs a solver over the given distances.
+     *
+     * @param size      Number of houses
+     * @param distances Flat distance matrix
+     */
+    HeldKarp(int size, double[] distances) {
+        this.size = size;
+        this.distances = distances;
+        this.bits = size - 1;
+    }
+
+    /**
+     * Returns the number of bytes the cost table and the sorted subsets take for a number of houses.
+     *
+     * @param size Number of houses
+     * @return The bytes needed, 0 for the trivial sizes that need no table
+     */
+    static long memoryNeeded(int size) {
+        if (size <= 2) {
+            return 0;
+        }
+        long subsetCount = 1L << (size - 1);
+        return subsetCount * (size - 1) * Double.BYTES + subsetCount * Integer.BYTES;
+    }
+
+    /**
+     * Returns the largest number of houses, at most {@link #MAX_SIZE}, whose tables fit in the heap
+     * that is still free or can still be claimed up to -Xmx.
+     *
+     * @return The largest number of houses that can be solved
+     */
+    static int maxSize() {
+        Runtime runtime = Runtime.getRuntime();
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        int size = MAX_SIZE;
+        while (size > 2 && memoryNeeded(size) > available) {
+            size--;
+        }
+        return size;
+    }
+
+    /**
+     * Returns why a number of houses cannot be solved.
+     *
+     * @param size    Number of houses
+     * @param maxSize The limit the size was checked against, see {@link #maxSize()}
+     * @return The message, naming the limit and the memory needed
+     */
+    static String tooLargeMessage(int size, int maxSize) {
+        return "Held-Karp supports at most " + maxSize + " houses with this heap, " + size + " houses need "
+                + memoryNeeded(size) / (1 << 20) + " MB, run with a larger -Xmx or use another method";
+    }
+
+    /**
+     * Finds an optimal tour starting at house 0.
+     * Of the two directions of the tour, the one whose second house has the smaller index is returned.
+     *
+     * @return The optimal tour as house indices
+     * @throws IllegalArgumentException if the tables do not fit in the heap, see {@link #maxSize()}
+     */
+    int[] solve() {
+        // The free heap changes from call to call, so the limit is read once for the check and the message
+        int maxSize = maxSize();
+        if (size > maxSize) {
+            throw new IllegalArgumentException(tooLargeMessage(size, maxSize));
+        }
+        int[] tour = new int[size];
+        if (size <= 2) {
+            for (int i = 0; i < size; i++) {
+                tour[i] = i;
+            }
+            bestLength = size == 2 ? 2 * distance(0, 1) : 0;
+            return tour;
+        }
+
+        int subsetCount = 1 << bits;
+        costs = new double[subsetCount * bits];
+        Arrays.fill(costs, Double.MAX_VALUE);
+        for (int j = 0; j < bits; j++) {
+            costs[(1 << j) * bits + j] = distance(0, j + 1);
+        }
+
+        // Relax the subsets layer by layer, every subset of a layer in parallel
+        int[] subsets = subsetsBySize(subsetCount);
+        int[] layerStarts = layerStarts();
+        for (int layer = 2; layer <= bits; layer++) {
+            IntStream.range(layerStarts[layer], layerStarts[layer + 1]).parallel()
+                    .forEach(i -> relax(subsets[i]));
+        }
+
+        // Close the tour back to house 0 from the best last house
+        int full = subsetCount - 1;
+        int last = 0;
+        bestLength = Double.MAX_VALUE;
+        for (int j = 0; j < bits; j++) {
+            double length = costs[full * bits + j] + distance(j + 1, 0);
+            if (length < bestLength) {
+                bestLength = length;
+                last = j;
+            }
+        }
+
+        // Walk back through the table to recover the houses of the tour
+        int mask = full;
+        for (int position = size - 1; position > 0; position--) {
+            tour[position] = last + 1;
+            int previousMask = mask & ~(1 << last);
+            double cost = costs[mask * bits + last];
+            for (int i = 0; i < bits; i++) {
+                if ((previousMask & (1 << i)) != 0
+                        && costs[previousMask * bits + i] + distance(i + 1, last + 1) == cost) {
+                    last = i;
+                    break;
+                }
+            }
+            mask = previousMask;
+        }
+        tour[0] = 0;
+        costs = null;
+
+        // Pick the direction of the tour whose second house has the smaller index
+        if (tour[1] > tour[size - 1]) {
+            for (int i = 1, j = size - 1; i < j; i++, j--) {
+                int temp = tour[i];
+                tour[i] = tour[j];
+                tour[j] = temp;
+            }
+        }
+        return tour;
+    }
+
+    /**
+     * Computes the cost of every path through a subset by extending the paths through its subsets
+     * that miss one house.
+     *
+     * @param mask The subset to relax
+     */
+    private void relax(int mask) {
+        for (int j = 0; j < bits; j++) {
+            if ((mask & (1 << j)) == 0) {
+                continue;
+            }
+            int previousMask = mask & ~(1 << j);
+            int row = previousMask * bits;
+            double best = Double.MAX_VALUE;
+            for (int i = 0; i < bits; i++) {
+                if ((previousMask & (1 << i)) != 0) {
+                    double cost = costs[row + i] + distance(i + 1, j + 1);
+                    if (cost < best) {
+                        best = cost;
+                    }
+                }
+            }
+            costs[mask * bits + j] = best;
+        }
+    }
+
+    /**
+     * Sorts all subsets by their number of houses with a counting sort.
+     *
+     * @param subsetCount Number of subsets
+     * @return The subsets, smaller ones first
+     */
+    private int[] subsetsBySize(int subsetCount) {
+        int[] next = layerStarts();
+        int[] subsets = new int[subsetCount];
+        for (int mask = 0; mask < subsetCount; mask++) {
+            subsets[next[Integer.bitCount(mask)]++] = mask;
+        }
+        return subsets;
+    }
+
+    /**
+     * Computes where every layer of equally sized subsets starts in the sorted subset array.
+     *
+     * @return The start of every layer, followed by the total number of subsets
+     */
+    private int[] layerStarts() {
+        int[] starts = new int[bits + 2];
+        long binomial = 1;
+        for (int layer = 0; layer <= bits; layer++) {
+            starts[layer + 1] = starts[layer] + (int) binomial;
+            binomial = binomial * (bits - layer) / (layer + 1);
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return distances[i * size + j];
+    }
+}
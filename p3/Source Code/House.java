@@ -0,0 +1,26 @@
+/**
+ * Represents a house with coordinates (x, y) and a house number.
+ */
+class House {
+
+    /** The x-coordinate of the house */
+    public double x;
+
+    /** The y-coordinate of the house */
+    public double y;
+
+    /** The number of the house */
+    public int number;
+
+    /**
+     * Constructs a house with the given coordinates and number.
+     * @param x The x-coordinate of the house
+     * @param y The y-coordinate of the house
+     * @param number The number of the house
+     */
+    House(double x, double y, int number) {
+        this.x = x;
+        this.y = y;
+        this.number = number;
+    }
+}
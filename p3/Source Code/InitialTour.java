@@ -0,0 +1,376 @@
+import java.util.Arrays;
+
+/**
+ * Constructive heuristics that build a first tour in about O(n log n) from the house coordinates alone,
+ * used to warm-start a colony before its first iteration. None of them needs a distance matrix:
+ * nearest neighbour and greedy edge only look at the nearest neighbours of every house from a k-d tree,
+ * and the space-filling curve only sorts the houses.
+ */
+public class InitialTour {
+
+    /**
+     * Heuristics that build the first tour.
+     */
+    enum Heuristic {
+
+        /** Always moves to the nearest unvisited house, about 25% above optimal */
+        NEAREST_NEIGHBOUR,
+
+        /** Adds the shortest edges that keep a set of paths, then joins the paths, about 15-20% above optimal */
+        GREEDY_EDGE,
+
+        /** Visits the houses along a Hilbert curve, about 25-40% above optimal but the fastest */
+        SPACE_FILLING_CURVE
+    }
+
+    /** Nearest neighbours every house considers */
+    private static final int NEIGHBOURS = 10;
+
+    /** Number of bits of each grid coordinate on the Hilbert curve */
+    private static final int CURVE_BITS = 16;
+
+    /** The x-coordinates of the houses */
+    private final double[] xs;
+
+    /** The y-coordinates of the houses */
+    private final double[] ys;
+
+    /** Number of houses */
+    private final int size;
+
+    /**
+     * Constructs the heuristics over the given coordinates.
+     *
+     * @param xs The x-coordinates of the houses
+     * @param ys The y-coordinates of the houses
+     */
+    InitialTour(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.size = xs.length;
+    }
+
+    /**
+     * Builds a tour with the given heuristic.
+     *
+     * @param heuristic The heuristic
+     * @return The tour as house indices
+     */
+    int[] build(Heuristic heuristic) {
+        if (size <= 3) {
+            // Every order is the same tour
+            int[] tour = new int[size];
+            for (int i = 0; i < size; i++) {
+                tour[i] = i;
+            }
+            return tour;
+        }
+        return switch (heuristic) {
+            case NEAREST_NEIGHBOUR -> nearestNeighbour();
+            case GREEDY_EDGE -> greedyEdge();
+            case SPACE_FILLING_CURVE -> spaceFillingCurve();
+        };
+    }
+
+    /**
+     * Starts at house 0 and always moves to the nearest unvisited house. The neighbour list of the current house
+     * is checked first, only when all of its neighbours are visited is the k-d tree of the unvisited houses asked.
+     *
+     * @return The tour as house indices
+     */
+    private int[] nearestNeighbour() {
+        int k = Math.min(NEIGHBOURS, size - 1);
+        KdTree tree = new KdTree(xs, ys);
+        int[] neighbours = nearestNeighbours(tree, size, k);
+        boolean[] visited = new boolean[size];
+        int[] nearest = new int[1];
+        int[] tour = new int[size];
+        int current = 0;
+        for (int step = 0; step < size; step++) {
+            tour[step] = current;
+            visited[current] = true;
+            tree.remove(current);
+            if (step == size - 1) {
+                break;
+            }
+            int next = -1;
+            for (int c = 0; c < k; c++) {
+                int neighbour = neighbours[current * k + c];
+                if (!visited[neighbour]) {
+                    next = neighbour;
+                    break;
+                }
+            }
+            if (next < 0) {
+                tree.nearest(current, 1, nearest);
+                next = nearest[0];
+            }
+            current = next;
+        }
+        return tour;
+    }
+
+    /**
+     * Adds the edges between nearest neighbours from the shortest to the longest, skipping every edge that would
+     * give a house a third edge or close a cycle. This leaves a set of paths, whose end houses are joined the
+     * same way over their own nearest ends until a single path through every house is left.
+     *
+     * @return The tour as house indices
+     */
+    private int[] greedyEdge() {
+        // The two tour neighbours of house i at [2 * i] and [2 * i + 1], -1 while missing
+        int[] links = new int[2 * size];
+        Arrays.fill(links, -1);
+        int[] parents = new int[size];
+        for (int i = 0; i < size; i++) {
+            parents[i] = i;
+        }
+        int[] points = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = i;
+        }
+        int paths = size;
+        while (paths > 1) {
+            int added = addShortestEdges(points, links, parents);
+            paths -= added;
+            if (paths == 1) {
+                break;
+            }
+            // Continue with the ends of the paths, houses without edges count as paths of their own
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if (links[2 * i + 1] < 0) {
+                    points[count++] = i;
+                }
+            }
+            points = Arrays.copyOf(points, count);
+            if (added == 0) {
+                // The nearest ends all belong to the same paths, join the rest by scanning
+                joinByScan(points, links, parents, paths);
+                break;
+            }
+        }
+
+        // Walk the path from one of its ends
+        int start = 0;
+        while (links[2 * start + 1] >= 0) {
+            start++;
+        }
+        int[] tour = new int[size];
+        int previous = -1;
+        int current = start;
+        for (int step = 0; step < size; step++) {
+            tour[step] = current;
+            int next = links[2 * current] != previous ? links[2 * current] : links[2 * current + 1];
+            previous = current;
+            current = next;
+        }
+        return tour;
+    }
+
+    /**
+     * One round of the greedy edge heuristic over some houses: sorts the edges to their nearest neighbours among
+     * the same houses and adds them from the shortest on.
+     *
+     * @param points  The houses of the round
+     * @param links   Tour neighbours of every house, updated
+     * @param parents Union-find forest of the paths, updated
+     * @return Number of edges added
+     */
+    private int addShortestEdges(int[] points, int[] links, int[] parents) {
+        int count = points.length;
+        int k = Math.min(NEIGHBOURS, count - 1);
+        double[] pointXs = new double[count];
+        double[] pointYs = new double[count];
+        for (int p = 0; p < count; p++) {
+            pointXs[p] = xs[points[p]];
+            pointYs[p] = ys[points[p]];
+        }
+        int[] neighbours = nearestNeighbours(new KdTree(pointXs, pointYs), count, k);
+
+        // Sort the edges by length, the float bits of a length order like the length itself
+        long[] edges = new long[count * k];
+        for (int e = 0; e < edges.length; e++) {
+            int from = points[e / k];
+            int to = points[neighbours[e]];
+            edges[e] = (long) Float.floatToIntBits((float) distance(from, to)) << Integer.SIZE | e;
+        }
+        Arrays.sort(edges);
+
+        int added = 0;
+        for (long edge : edges) {
+            int e = (int) edge;
+            if (tryLink(points[e / k], points[neighbours[e]], links, parents)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Joins the remaining paths by repeatedly connecting an end to the nearest end of another path.
+     *
+     * @param ends    The ends of the paths
+     * @param links   Tour neighbours of every house, updated
+     * @param parents Union-find forest of the paths, updated
+     * @param paths   Number of paths
+     */
+    private void joinByScan(int[] ends, int[] links, int[] parents, int paths) {
+        while (paths > 1) {
+            for (int from : ends) {
+                if (paths == 1) {
+                    return;
+                }
+                if (links[2 * from + 1] >= 0) {
+                    continue;
+                }
+                int nearest = -1;
+                double nearestDistance = Double.MAX_VALUE;
+                for (int to : ends) {
+                    if (links[2 * to + 1] < 0 && find(parents, to) != find(parents, from)
+                            && distance(from, to) < nearestDistance) {
+                        nearestDistance = distance(from, to);
+                        nearest = to;
+                    }
+                }
+                if (nearest >= 0 && tryLink(from, nearest, links, parents)) {
+                    paths--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an edge if both houses have fewer than two edges and belong to different paths.
+     *
+     * @param i       Index of the first house
+     * @param j       Index of the second house
+     * @param links   Tour neighbours of every house, updated
+     * @param parents Union-find forest of the paths, updated
+     * @return true if the edge was added
+     */
+    private static boolean tryLink(int i, int j, int[] links, int[] parents) {
+        if (links[2 * i + 1] >= 0 || links[2 * j + 1] >= 0) {
+            return false;
+        }
+        int rootI = find(parents, i);
+        int rootJ = find(parents, j);
+        if (rootI == rootJ) {
+            return false;
+        }
+        parents[rootI] = rootJ;
+        links[links[2 * i] < 0 ? 2 * i : 2 * i + 1] = j;
+        links[links[2 * j] < 0 ? 2 * j : 2 * j + 1] = i;
+        return true;
+    }
+
+    /**
+     * Finds the path a house belongs to, halving the way to the root on the go.
+     *
+     * @param parents Union-find forest of the paths
+     * @param i       Index of the house
+     * @return Index of the root house of the path
+     */
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * Visits the houses in the order of their position on a Hilbert curve over the bounding box.
+     * Houses close on the curve are close on the map, so the tour rarely jumps far.
+     *
+     * @return The tour as house indices
+     */
+    private int[] spaceFillingCurve() {
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        int cells = 1 << CURVE_BITS;
+        double scale = (cells - 1) / Math.max(Math.max(maxX - minX, maxY - minY), 1e-12);
+
+        // The curve position in the high bits and the house in the low bits, so sorting orders the houses
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            int x = (int) ((xs[i] - minX) * scale);
+            int y = (int) ((ys[i] - minY) * scale);
+            keys[i] = hilbertIndex(x, y, cells) << Integer.SIZE | i;
+        }
+        Arrays.sort(keys);
+        int[] tour = new int[size];
+        for (int i = 0; i < size; i++) {
+            tour[i] = (int) keys[i];
+        }
+        return tour;
+    }
+
+    /**
+     * Computes the position of a grid cell on the Hilbert curve that fills the grid.
+     *
+     * @param x     Column of the cell
+     * @param y     Row of the cell
+     * @param cells Number of cells per side, a power of two
+     * @return The position of the cell on the curve
+     */
+    private static long hilbertIndex(int x, int y, int cells) {
+        long index = 0;
+        for (int half = cells >>> 1; half > 0; half >>>= 1) {
+            int rx = (x & half) > 0 ? 1 : 0;
+            int ry = (y & half) > 0 ? 1 : 0;
+            index += (long) half * half * ((3 * rx) ^ ry);
+            // Rotate the quadrant so the curve inside it starts and ends at the right corners
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = cells - 1 - x;
+                    y = cells - 1 - y;
+                }
+                int temp = x;
+                x = y;
+                y = temp;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Finds the nearest neighbours of every point with a k-d tree.
+     *
+     * @param tree  The k-d tree over the points
+     * @param count Number of points
+     * @param k     Number of neighbours per point
+     * @return Flat neighbour lists, the neighbours of point i are stored nearest first at [i * k]
+     */
+    private static int[] nearestNeighbours(KdTree tree, int count, int k) {
+        int[] lists = new int[count * k];
+        if (k == 0) {
+            return lists;
+        }
+        int[] neighbours = new int[k];
+        for (int i = 0; i < count; i++) {
+            tree.nearest(i, k, neighbours);
+            System.arraycopy(neighbours, 0, lists, i * k, k);
+        }
+        return lists;
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return Math.sqrt(Math.pow(xs[i] - xs[j], 2) + Math.pow(ys[i] - ys[j], 2));
+    }
+}
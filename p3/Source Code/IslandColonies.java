@@ -0,0 +1,286 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Island model of the Ant Colony Optimization method.
+ * Several colonies with their own pheromone matrices search the same map at the same time, one thread per island.
+ * Their alpha, beta and evaporation are spread around the configured values, so some islands explore while others
+ * exploit. Every few iterations the islands exchange information on the calling thread, either by passing their
+ * best tours around a ring or by blending their trails with the average trail of all islands.
+ * Every island draws from its own stream split from the seed, and the exchange does not depend on scheduling,
+ * so a run is reproducible for a given seed.
+ */
+public class IslandColonies {
+
+    /**
+     * What the islands exchange when they migrate.
+     */
+    enum MigrationMode {
+
+        /** Every island receives the best tour of its neighbour on the ring and reinforces it */
+        BEST_TOUR,
+
+        /** Every island moves its pheromone levels toward the average of all islands */
+        BLEND_PHEROMONES
+    }
+
+    /** Lowest and highest factor the parameters are spread over, relative to the configured value */
+    private static final double SPREAD = 0.5;
+
+    /** Parameters of every island */
+    final SolverConfig[] configs;
+
+    /** The colonies, one per island */
+    final AntColony[] colonies;
+
+    /** Reusable ant buffers of every island */
+    private final Ant[][] ants;
+
+    /** Random number stream of every island */
+    private final SplittableRandom[] randoms;
+
+    /** What the islands exchange */
+    private final MigrationMode mode;
+
+    /** The islands exchange information every this many iterations */
+    private final int interval;
+
+    /** Share of the average trail blended into every island */
+    private final double weight;
+
+    /** Pool that runs the islands */
+    private final ExecutorService pool;
+
+    /** Iterations run so far */
+    private int iteration;
+
+    /** Asked before every ant but the first of an island whether the iteration should be cut short, may be null */
+    private BooleanSupplier stopCheck;
+
+    /** Best tour of all islands */
+    final int[] bestTour;
+
+    /** Length of the best tour of all islands */
+    double bestLength = Double.MAX_VALUE;
+
+    /**
+     * Constructs the islands, each with its own colony.
+     *
+     * @param houses List of houses
+     * @param config Parameters of the run, the island parameters are spread around its alpha, beta and evaporation
+     */
+    IslandColonies(ArrayList<House> houses, SolverConfig config) {
+        this.configs = islandConfigs(config);
+        int islandCount = configs.length;
+        this.colonies = new AntColony[islandCount];
+        this.ants = new Ant[islandCount][config.antCountPerIteration];
+        this.randoms = new SplittableRandom[islandCount];
+        SplittableRandom seeder = new SplittableRandom(config.seed);
+        for (int k = 0; k < islandCount; k++) {
+            colonies[k] = AcoSolver.buildColony(houses, configs[k]);
+            for (int i = 0; i < config.antCountPerIteration; i++) {
+                ants[k][i] = colonies[k].newAnt();
+            }
+            randoms[k] = seeder.split();
+        }
+        this.mode = config.migrationMode;
+        this.interval = Math.max(1, config.migrationInterval);
+        this.weight = config.migrationWeight;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, Math.min(islandCount, config.threadCount)));
+        this.bestTour = new int[houses.size()];
+    }
+
+    /**
+     * Spreads the parameters of the islands evenly between half and one and a half times the configured values.
+     * Alpha and evaporation rise from the first island to the last while beta falls, so the first island
+     * follows the distances and the last one follows the trails.
+     *
+     * @param config Parameters of the run
+     * @return The parameters of every island
+     */
+    static SolverConfig[] islandConfigs(SolverConfig config) {
+        int islandCount = Math.max(1, config.islandCount);
+        SolverConfig[] configs = new SolverConfig[islandCount];
+        for (int k = 0; k < islandCount; k++) {
+            // Position of the island between -1 and 1, a single island keeps the configured values
+            double position = islandCount == 1 ? 0 : 2.0 * k / (islandCount - 1) - 1;
+            SolverConfig island = config.copy();
+            island.alpha = config.alpha * (1 + SPREAD * position);
+            island.beta = config.beta * (1 - SPREAD * position);
+            double evaporation = Math.min(1, (1 - config.degradationFactor) * (1 + SPREAD * position));
+            island.degradationFactor = 1 - evaporation;
+            configs[k] = island;
+        }
+        return configs;
+    }
+
+    /**
+     * Cuts iterations short once the given check returns true: every island finishes the iteration with the
+     * tours it built so far. Every island builds at least one tour.
+     *
+     * @param stopCheck Called from the island threads before every ant, for example a monitor's deadline check
+     */
+    void stopWhen(BooleanSupplier stopCheck) {
+        this.stopCheck = stopCheck;
+    }
+
+    /**
+     * Runs one iteration on every island in parallel, then migrates if the interval has passed.
+     *
+     * @return Length of the best tour of this iteration over all islands
+     * @throws IllegalStateException if an island fails
+     */
+    double runIteration() {
+        ArrayList<Callable<Double>> tasks = new ArrayList<>(colonies.length);
+        for (int k = 0; k < colonies.length; k++) {
+            int island = k;
+            tasks.add(() -> runIsland(island));
+        }
+        double iterationBest = Double.MAX_VALUE;
+        try {
+            for (Future<Double> result : pool.invokeAll(tasks)) {
+                iterationBest = Math.min(iterationBest, result.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+
+        // Take the best tour in island order so ties do not depend on scheduling
+        for (AntColony colony : colonies) {
+            if (colony.bestLength < bestLength) {
+                bestLength = colony.bestLength;
+                System.arraycopy(colony.bestTour, 0, bestTour, 0, bestTour.length);
+            }
+        }
+        iteration++;
+        if (colonies.length > 1 && iteration % interval == 0) {
+            if (mode == MigrationMode.BEST_TOUR) {
+                migrateBestTours();
+            } else {
+                blendPheromones();
+            }
+        }
+        return iterationBest;
+    }
+
+    /**
+     * Constructs the tours of one island and updates its pheromones.
+     *
+     * @param island Index of the island
+     * @return Length of the best tour of the island in this iteration
+     */
+    private double runIsland(int island) {
+        AntColony colony = colonies[island];
+        Ant[] islandAnts = ants[island];
+        int built = 0;
+        while (built < islandAnts.length && (built == 0 || stopCheck == null || !stopCheck.getAsBoolean())) {
+            colony.constructTour(islandAnts[built++], randoms[island]);
+        }
+        if (built < islandAnts.length) {
+            islandAnts = Arrays.copyOf(islandAnts, built); // Cut short, only the constructed tours count
+        }
+        return colony.finishIteration(islandAnts, configs[island].Q, configs[island].degradationFactor);
+    }
+
+    /**
+     * Passes the best tour of every island to the next island on the ring.
+     * All tours are copied before any island receives one, so a tour travels a single step per migration.
+     */
+    private void migrateBestTours() {
+        int islandCount = colonies.length;
+        int[][] tours = new int[islandCount][];
+        double[] lengths = new double[islandCount];
+        for (int k = 0; k < islandCount; k++) {
+            tours[k] = colonies[k].bestTour.clone();
+            lengths[k] = colonies[k].bestLength;
+        }
+        for (int k = 0; k < islandCount; k++) {
+            int from = (k + islandCount - 1) % islandCount;
+            if (lengths[from] < Double.MAX_VALUE) {
+                colonies[k].acceptMigrant(tours[from], lengths[from], configs[k].Q, configs[k].degradationFactor);
+            }
+        }
+    }
+
+    /**
+     * Moves the pheromone level of every edge on every island toward the average level of that edge.
+     * With candidate lists only the candidate edges keep their own level, so only those are blended, in O(n k).
+     */
+    private void blendPheromones() {
+        int size = bestTour.length;
+        AntColony first = colonies[0]; // Every island has the same candidate lists
+        int candidateCount = first.candidateCount;
+        if (candidateCount > 0) {
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < candidateCount; c++) {
+                    int j = first.candidates[i * candidateCount + c];
+                    // An edge in both lists is blended once, from the list of the lower house
+                    if (j > i || !isCandidate(first, j, i)) {
+                        blendPheromone(i, j);
+                    }
+                }
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    blendPheromone(i, j);
+                }
+            }
+        }
+        for (AntColony colony : colonies) {
+            colony.pheromonesChanged();
+        }
+    }
+
+    /**
+     * Moves the pheromone level of an edge on every island toward the average level of that edge.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     */
+    private void blendPheromone(int i, int j) {
+        double mean = 0;
+        for (AntColony colony : colonies) {
+            mean += colony.pheromones.get(i, j);
+        }
+        mean /= colonies.length;
+        for (AntColony colony : colonies) {
+            colony.pheromones.set(i, j, (1 - weight) * colony.pheromones.get(i, j) + weight * mean);
+        }
+    }
+
+    /**
+     * Checks whether a house is in the candidate list of another house.
+     *
+     * @param colony    The colony whose candidate lists are checked
+     * @param house     Index of the house whose list is checked
+     * @param candidate Index of the possible candidate
+     * @return true if the candidate is in the list
+     */
+    private static boolean isCandidate(AntColony colony, int house, int candidate) {
+        int offset = house * colony.candidateCount;
+        for (int c = 0; c < colony.candidateCount; c++) {
+            if (colony.candidates[offset + c] == candidate) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+}
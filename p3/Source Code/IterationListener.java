@@ -0,0 +1,13 @@
+/**
+ * Receives the metrics of every iteration of the Ant Colony Optimization method as soon as it finishes.
+ */
+@FunctionalInterface
+public interface IterationListener {
+
+    /**
+     * Called after every iteration, on the thread that runs the colony.
+     *
+     * @param stats Metrics of the finished iteration
+     */
+    void iterationFinished(IterationStats stats);
+}
@@ -0,0 +1,54 @@
+/**
+ * Metrics of one finished iteration of the Ant Colony Optimization method.
+ */
+public class IterationStats {
+
+    /** Number of the iteration, starting at 0 */
+    final int iteration;
+
+    /** Length of the best tour built in this iteration */
+    final double iterationBestLength;
+
+    /** Length of the best tour found so far */
+    final double globalBestLength;
+
+    /**
+     * Average number of edges per house whose pheromone level is within the top 95% of the range of that house,
+     * drops towards 2 as the colony converges. NaN if it was not computed for this iteration.
+     */
+    final double branchingFactor;
+
+    /**
+     * Average entropy of the pheromone levels around every house, normalized to [0, 1],
+     * 1 while all trails are equal, drops as a few edges take over. NaN if it was not computed for this iteration.
+     */
+    final double entropy;
+
+    /** Time the iteration took in nanoseconds, without computing these metrics */
+    final long iterationNanos;
+
+    /** Time since the first iteration started in nanoseconds */
+    final long elapsedNanos;
+
+    /**
+     * Constructs the metrics of an iteration.
+     *
+     * @param iteration           Number of the iteration
+     * @param iterationBestLength Length of the best tour built in the iteration
+     * @param globalBestLength    Length of the best tour found so far
+     * @param branchingFactor     Lambda-branching factor of the pheromone matrix
+     * @param entropy             Normalized pheromone entropy
+     * @param iterationNanos      Time the iteration took in nanoseconds
+     * @param elapsedNanos        Time since the first iteration started in nanoseconds
+     */
+    IterationStats(int iteration, double iterationBestLength, double globalBestLength, double branchingFactor,
+                   double entropy, long iterationNanos, long elapsedNanos) {
+        this.iteration = iteration;
+        this.iterationBestLength = iterationBestLength;
+        this.globalBestLength = globalBestLength;
+        this.branchingFactor = branchingFactor;
+        this.entropy = entropy;
+        this.iterationNanos = iterationNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+}
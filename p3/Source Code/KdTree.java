@@ -0,0 +1,318 @@
+import java.util.Arrays;
+
+/**
+ * Two-dimensional k-d tree over house coordinates, used to find the k nearest neighbours of every house.
+ * The tree is stored implicitly in a single index array: the median of every range is its root,
+ * and the ranges on either side of it are its subtrees, split alternately on x and y.
+ * Points can be removed, later queries skip them and every subtree without points left, so the tree also
+ * answers nearest unvisited point queries.
+ * Queries reuse internal buffers, so a tree must not be queried from several threads at once.
+ */
+public class KdTree {
+
+    /** The x-coordinates of the points */
+    private final double[] xs;
+
+    /** The y-coordinates of the points */
+    private final double[] ys;
+
+    /** Point indices in tree order */
+    private final int[] order;
+
+    /** Number of points left in the subtree rooted at every position, null until a point is removed */
+    private int[] live;
+
+    /** Position of every point in tree order, null until a point is removed */
+    private int[] positions;
+
+    /** Whether every point was removed, null until a point is removed */
+    private boolean[] removed;
+
+    /** Indices of the neighbours found by the current query, kept as a max-heap on distance */
+    private int[] heap = new int[0];
+
+    /** Squared distances of the neighbours in the heap */
+    private double[] heapDistances = new double[0];
+
+    /** Number of neighbours in the heap */
+    private int heapSize;
+
+    /** Number of neighbours the current query looks for */
+    private int wanted;
+
+    /** Point the current query is made for */
+    private int query;
+
+    /**
+     * Builds a tree over the given coordinates in O(n log n).
+     *
+     * @param xs The x-coordinates of the points
+     * @param ys The y-coordinates of the points
+     */
+    KdTree(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.order = new int[xs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        build(0, order.length, true);
+    }
+
+    /**
+     * Constructs a tree that shares the arrangement of another tree, with every point present.
+     *
+     * @param tree The tree to share
+     */
+    private KdTree(KdTree tree) {
+        this.xs = tree.xs;
+        this.ys = tree.ys;
+        this.order = tree.order;
+    }
+
+    /**
+     * Creates a tree over the same points in O(1) that removes points on its own, so that every ant can keep
+     * its unvisited houses without building a tree. The copy has every point, whatever this tree removed.
+     *
+     * @return The new tree
+     */
+    KdTree copy() {
+        return new KdTree(this);
+    }
+
+    /**
+     * Puts every removed point back in O(n).
+     */
+    void restore() {
+        if (live != null) {
+            Arrays.fill(removed, false);
+            countLive(0, order.length);
+        }
+    }
+
+    /**
+     * Finds the nearest neighbours of a point, excluding the point itself.
+     *
+     * @param point  Index of the point
+     * @param k      Number of neighbours to find, at most n - 1
+     * @param result Array the neighbours are written to, nearest first
+     */
+    void nearest(int point, int k, int[] result) {
+        if (heap.length < k) {
+            heap = new int[k];
+            heapDistances = new double[k];
+        }
+        heapSize = 0;
+        wanted = k;
+        query = point;
+        search(0, order.length, true);
+
+        // Pop the heap from the farthest neighbour to the nearest
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heap[0];
+            heap[0] = heap[i];
+            heapDistances[0] = heapDistances[i];
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Removes a point in O(log n), later queries do not return it.
+     *
+     * @param point Index of the point
+     */
+    void remove(int point) {
+        if (live == null) {
+            live = new int[order.length];
+            positions = new int[order.length];
+            removed = new boolean[order.length];
+            for (int i = 0; i < order.length; i++) {
+                positions[order[i]] = i;
+            }
+            countLive(0, order.length);
+        }
+        if (removed[point]) {
+            return;
+        }
+        removed[point] = true;
+        // Walk down from the root to the position of the point, counting it out of every subtree on the way
+        int position = positions[point];
+        int from = 0;
+        int to = order.length;
+        while (true) {
+            int middle = (from + to) >>> 1;
+            live[middle]--;
+            if (position == middle) {
+                return;
+            } else if (position < middle) {
+                to = middle;
+            } else {
+                from = middle + 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the number of points left in every subtree of a range to its size.
+     *
+     * @param from First position of the range
+     * @param to   One past the last position of the range
+     * @return The size of the range
+     */
+    private int countLive(int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        int middle = (from + to) >>> 1;
+        live[middle] = 1 + countLive(from, middle) + countLive(middle + 1, to);
+        return live[middle];
+    }
+
+    /**
+     * Arranges the points of a range so that its median splits it on the given axis, then recurses.
+     *
+     * @param from First position of the range
+     * @param to   One past the last position of the range
+     * @param onX  Whether the range is split on the x-axis
+     */
+    private void build(int from, int to, boolean onX) {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, onX ? xs : ys);
+        build(from, middle, !onX);
+        build(middle + 1, to, !onX);
+    }
+
+    /**
+     * Moves the point with the given rank within [low, high] to that position using quickselect,
+     * with smaller coordinates before it and larger ones after it.
+     *
+     * @param low         First position of the range
+     * @param high        Last position of the range
+     * @param rank        Position that should receive its sorted point
+     * @param coordinates Coordinates the points are compared by
+     */
+    private void select(int low, int high, int rank, double[] coordinates) {
+        while (low < high) {
+            double pivot = coordinates[order[(low + high) >>> 1]];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coordinates[order[i]] < pivot) {
+                    i++;
+                }
+                while (coordinates[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Searches a subtree for neighbours of the query point, visiting the nearer side first
+     * and skipping the farther side when it cannot hold anything closer.
+     *
+     * @param from First position of the subtree
+     * @param to   One past the last position of the subtree
+     * @param onX  Whether the subtree is split on the x-axis
+     */
+    private void search(int from, int to, boolean onX) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (live != null && live[middle] == 0) {
+            return;
+        }
+        int point = order[middle];
+        if (point != query && (removed == null || !removed[point])) {
+            double dx = xs[point] - xs[query];
+            double dy = ys[point] - ys[query];
+            offer(point, dx * dx + dy * dy);
+        }
+        double difference = onX ? xs[query] - xs[point] : ys[query] - ys[point];
+        if (difference < 0) {
+            search(from, middle, !onX);
+            if (heapSize < wanted || difference * difference < heapDistances[0]) {
+                search(middle + 1, to, !onX);
+            }
+        } else {
+            search(middle + 1, to, !onX);
+            if (heapSize < wanted || difference * difference < heapDistances[0]) {
+                search(from, middle, !onX);
+            }
+        }
+    }
+
+    /**
+     * Adds a point to the heap if it is closer than the farthest neighbour found so far.
+     *
+     * @param point           Index of the point
+     * @param squaredDistance Squared distance of the point to the query point
+     */
+    private void offer(int point, double squaredDistance) {
+        if (heapSize < wanted) {
+            // Sift the new point up from the end of the heap
+            int child = heapSize++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (heapDistances[parent] >= squaredDistance) {
+                    break;
+                }
+                heap[child] = heap[parent];
+                heapDistances[child] = heapDistances[parent];
+                child = parent;
+            }
+            heap[child] = point;
+            heapDistances[child] = squaredDistance;
+        } else if (squaredDistance < heapDistances[0]) {
+            heap[0] = point;
+            heapDistances[0] = squaredDistance;
+            siftDown(heapSize);
+        }
+    }
+
+    /**
+     * Restores the max-heap order from the root, considering only the first {@code size} entries.
+     *
+     * @param size Number of entries in the heap
+     */
+    private void siftDown(int size) {
+        int parent = 0;
+        int point = heap[0];
+        double squaredDistance = heapDistances[0];
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heapDistances[child + 1] > heapDistances[child]) {
+                child++;
+            }
+            if (heapDistances[child] <= squaredDistance) {
+                break;
+            }
+            heap[parent] = heap[child];
+            heapDistances[parent] = heapDistances[child];
+            parent = child;
+        }
+        heap[parent] = point;
+        heapDistances[parent] = squaredDistance;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * The dense array loops of the colony: distance and heuristic rows, choice info rows, gathering the weights
+ * of the unvisited houses and evaporation. This class runs them one element at a time.
+ * When the virtual machine is started with {@code --add-modules jdk.incubator.vector} and the class
+ * {@code VectorKernels} from the Vector folder is on the class path, that subclass is used instead and runs
+ * them several lanes at a time. It needs to be compiled separately with the module added:
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -d out -cp out Vector/VectorKernels.java
+ * java --add-modules jdk.incubator.vector -cp out YukselEgeBoyaci
+ * </pre>
+ * The scalar loops give the same results as the code they replaced, so a seeded run is reproducible.
+ * The vector loops compute powers with the vector math library and add up sums in several lanes,
+ * so their results can differ from the scalar ones in the last bits.
+ */
+public class Kernels {
+
+    /** The kernels used by the colony, vectorized if possible */
+    static final Kernels INSTANCE = select();
+
+    /**
+     * Picks the vectorized kernels if the Vector API module is present and they are on the class path,
+     * the scalar ones otherwise.
+     *
+     * @return The kernels
+     */
+    private static Kernels select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (Kernels) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // The vector kernels were not compiled, fall back to the scalar loops
+            }
+        }
+        return new Kernels();
+    }
+
+    /**
+     * Returns the name of the kernels, for reports.
+     *
+     * @return "scalar" or the name of the vector shape
+     */
+    String name() {
+        return "scalar";
+    }
+
+    /**
+     * Computes the distances from one house to a range of houses.
+     *
+     * @param xs    The x-coordinates of the houses
+     * @param ys    The y-coordinates of the houses
+     * @param i     Index of the house
+     * @param from  First house of the range
+     * @param count Number of houses in the range
+     * @param out   Receives the distance to house from + k at [k]
+     */
+    void distances(double[] xs, double[] ys, int i, int from, int count, double[] out) {
+        double x = xs[i];
+        double y = ys[i];
+        for (int k = 0; k < count; k++) {
+            out[k] = Math.sqrt(Math.pow(x - xs[from + k], 2) + Math.pow(y - ys[from + k], 2));
+        }
+    }
+
+    /**
+     * Computes the heuristic values 1 / distance^beta of a row of distances.
+     *
+     * @param distances The distances
+     * @param count     Number of distances
+     * @param beta      Parameter controlling influence of distance
+     * @param out       Receives the heuristic values
+     */
+    void heuristics(double[] distances, int count, double beta, double[] out) {
+        for (int k = 0; k < count; k++) {
+            out[k] = 1 / Math.pow(distances[k], beta);
+        }
+    }
+
+    /**
+     * Computes the choice info pheromone^alpha * heuristic of a row of edges.
+     *
+     * @param pheromones The pheromone levels
+     * @param heuristics The heuristic values
+     * @param count      Number of edges
+     * @param alpha      Parameter controlling influence of pheromones
+     * @param out        Receives the choice info
+     */
+    void choiceInfo(double[] pheromones, double[] heuristics, int count, double alpha, double[] out) {
+        for (int k = 0; k < count; k++) {
+            out[k] = Math.pow(pheromones[k], alpha) * heuristics[k];
+        }
+    }
+
+    /**
+     * Gathers scattered entries of an array and adds them up.
+     *
+     * @param values  The array
+     * @param offset  Offset added to every column
+     * @param columns Positions of the entries relative to the offset
+     * @param count   Number of entries
+     * @param out     Receives the entry at offset + columns[k] at [k]
+     * @return The sum of the entries
+     */
+    double gather(double[] values, int offset, int[] columns, int count, double[] out) {
+        double total = 0;
+        for (int k = 0; k < count; k++) {
+            double value = values[offset + columns[k]];
+            out[k] = value;
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Multiplies every entry of an array by a factor.
+     *
+     * @param values The array
+     * @param factor The factor
+     */
+    void scale(double[] values, double factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+}
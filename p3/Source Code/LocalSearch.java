@@ -0,0 +1,357 @@
+/**
+ * 2-opt and Or-opt local search applied to ant tours after construction.
+ * Moves are only tried towards the nearest neighbours of a house, houses whose surroundings did not change
+ * are skipped using don't-look bits, and every move is evaluated in O(1) from the edges it replaces.
+ * Or-opt moves are carried out as a sequence of 2-opt reversals, and every reversal flips the shorter side
+ * of the tour, so the tour is kept as a plain int array with a position index.
+ * Each ant owns its own instance because the buffers are reused between calls.
+ */
+public class LocalSearch {
+
+    /** Smallest improvement that is accepted, guards against cycling on rounding errors */
+    private static final double EPSILON = 1e-10;
+
+    /** Longest segment that Or-opt moves */
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    /** Number of houses */
+    private final int size;
+
+    /** Distance matrix of the colony */
+    private final SymmetricMatrix distances;
+
+    /** Flat neighbour lists, the neighbours of house i are stored nearest first at [i * neighbourCount] */
+    private final int[] neighbours;
+
+    /** Number of neighbours every house has */
+    private final int neighbourCount;
+
+    /** The tour being improved */
+    private int[] tour;
+
+    /** Position of every house in the tour */
+    private final int[] positions;
+
+    /** Houses waiting to be checked, used as a circular queue */
+    private final int[] queue;
+
+    /** Whether a house is currently in the queue, the inverse of its don't-look bit */
+    private final boolean[] queued;
+
+    /** Index of the first house in the queue */
+    private int queueHead;
+
+    /** Number of houses in the queue */
+    private int queueSize;
+
+    /**
+     * Constructs a local search over the given distances and neighbour lists.
+     *
+     * @param size           Number of houses
+     * @param distances      Distance matrix
+     * @param neighbours     Flat neighbour lists
+     * @param neighbourCount Number of neighbours every house has
+     */
+    LocalSearch(int size, SymmetricMatrix distances, int[] neighbours, int neighbourCount) {
+        this.size = size;
+        this.distances = distances;
+        this.neighbours = neighbours;
+        this.neighbourCount = neighbourCount;
+        this.positions = new int[size];
+        this.queue = new int[size];
+        this.queued = new boolean[size];
+    }
+
+    /**
+     * Improves the given tour in place until no 2-opt or Or-opt move improves it.
+     *
+     * @param tour   The tour to improve
+     * @param length The length of the tour
+     * @return The length of the improved tour
+     */
+    double improve(int[] tour, double length) {
+        if (size < 5) {
+            return length;
+        }
+        this.tour = tour;
+        queueHead = 0;
+        queueSize = 0;
+        for (int i = 0; i < size; i++) {
+            positions[tour[i]] = i;
+            push(tour[i]);
+        }
+
+        while (queueSize > 0) {
+            int house = queue[queueHead];
+            queueHead = (queueHead + 1) % size;
+            queueSize--;
+            queued[house] = false;
+
+            double gain = improveTwoOpt(house, true);
+            if (gain == 0) {
+                gain = improveTwoOpt(house, false);
+            }
+            if (gain == 0) {
+                gain = improveOrOpt(house);
+            }
+            if (gain > 0) {
+                length -= gain;
+                // Look at the house again, its neighbourhood has changed
+                push(house);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Tries the 2-opt moves that connect a house to one of its neighbours.
+     * In the chosen direction the edges (a, b) and (c, d) are replaced with (a, c) and (b, d).
+     *
+     * @param a       The house to improve around
+     * @param forward Whether b and d follow a and c in the tour, or precede them
+     * @return The gain of the move that was made, 0 if none
+     */
+    private double improveTwoOpt(int a, boolean forward) {
+        int b = forward ? next(a) : previous(a);
+        double removedAB = distance(a, b);
+        for (int i = 0; i < neighbourCount; i++) {
+            int c = neighbours[a * neighbourCount + i];
+            double addedAC = distance(a, c);
+            if (addedAC >= removedAB) {
+                // Neighbours are sorted, no later neighbour can give a gain either
+                break;
+            }
+            int d = forward ? next(c) : previous(c);
+            if (c == b || d == a) {
+                continue;
+            }
+            double gain = removedAB + distance(c, d) - addedAC - distance(b, d);
+            if (gain > EPSILON) {
+                twoOptMove(a, b, c, d);
+                push(b);
+                push(c);
+                push(d);
+                return gain;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Tries the Or-opt moves that take a segment of up to three houses starting at a house
+     * and insert it next to one of the neighbours of that house, in either orientation.
+     *
+     * @param s1 The house the segment starts at
+     * @return The gain of the move that was made, 0 if none
+     */
+    private double improveOrOpt(int s1) {
+        for (int length = 1; length <= MAX_SEGMENT_LENGTH; length++) {
+            for (int direction = 0; direction < 2; direction++) {
+                boolean forward = direction == 0;
+                // The segment runs s1..s2 in the chosen direction, between p and nx
+                int s2 = s1;
+                for (int i = 1; i < length; i++) {
+                    s2 = step(s2, forward);
+                }
+                int p = step(s1, !forward);
+                int nx = step(s2, forward);
+                if (p == nx || p == s2) {
+                    continue;
+                }
+                double removeGain = distance(p, s1) + distance(s2, nx) - distance(p, nx);
+                if (removeGain <= EPSILON) {
+                    continue;
+                }
+
+                for (int i = 0; i < neighbourCount; i++) {
+                    int c = neighbours[s1 * neighbourCount + i];
+                    double addedS1C = distance(s1, c);
+                    if (addedS1C >= removeGain) {
+                        break;
+                    }
+                    if (insideSegment(c, s1, length, forward)) {
+                        continue;
+                    }
+
+                    // Insert between c and the house after it, giving (c, s1) and (s2, e)
+                    int e = step(c, forward);
+                    if (!insideSegment(e, s1, length, forward)) {
+                        double gain = removeGain - addedS1C - distance(s2, e) + distance(c, e);
+                        if (gain > EPSILON) {
+                            orOptMove(p, s1, s2, nx, c, e, true);
+                            pushEndpoints(p, nx, s2, c, e);
+                            return gain;
+                        }
+                    }
+
+                    // Insert between the house before c and c, giving (e, s2) and (s1, c)
+                    e = step(c, !forward);
+                    if (!insideSegment(e, s1, length, forward)) {
+                        double gain = removeGain - addedS1C - distance(e, s2) + distance(e, c);
+                        if (gain > EPSILON) {
+                            orOptMove(p, s1, s2, nx, e, c, false);
+                            pushEndpoints(p, nx, s2, c, e);
+                            return gain;
+                        }
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Moves the segment s1..s2 that sits between p and nx to the edge (x, y),
+     * where p, s1, s2, nx, x and y appear in this order in one direction of the tour.
+     * Two 2-opt moves leave the segment reversed between x and y, a third one turns it around.
+     *
+     * @param p         The house before the segment
+     * @param s1        The first house of the segment
+     * @param s2        The last house of the segment
+     * @param nx        The house after the segment
+     * @param x         The house the segment is inserted after
+     * @param y         The house the segment is inserted before
+     * @param s1NextToX Whether the result should contain (x, s1) and (s2, y) rather than (x, s2) and (s1, y)
+     */
+    private void orOptMove(int p, int s1, int s2, int nx, int x, int y, boolean s1NextToX) {
+        twoOptMove(p, s1, x, y);
+        twoOptMove(p, x, nx, s2);
+        if (s1NextToX && s1 != s2) {
+            twoOptMove(x, s2, s1, y);
+        }
+    }
+
+    /**
+     * Replaces the edges (a, b) and (c, d) with (a, c) and (b, d) by reversing the path between them.
+     * b must follow a and d must follow c in the same direction of the tour, which may be either.
+     *
+     * @param a First house of the first edge
+     * @param b Second house of the first edge
+     * @param c First house of the second edge
+     * @param d Second house of the second edge
+     */
+    private void twoOptMove(int a, int b, int c, int d) {
+        if (next(a) == b) {
+            reverse(positions[b], positions[c]);
+        } else {
+            reverse(positions[c], positions[b]);
+        }
+    }
+
+    /**
+     * Reverses the tour between two positions, going forward and wrapping around the end.
+     * When the path is longer than half the tour the rest of the tour is reversed instead,
+     * which gives the same cycle.
+     *
+     * @param from First position of the path
+     * @param to   Last position of the path
+     */
+    private void reverse(int from, int to) {
+        int length = (to - from + size) % size + 1;
+        if (2 * length > size) {
+            int newFrom = (to + 1) % size;
+            to = (from - 1 + size) % size;
+            from = newFrom;
+            length = size - length;
+        }
+        for (int i = 0; i < length / 2; i++) {
+            int first = tour[from];
+            int second = tour[to];
+            tour[from] = second;
+            positions[second] = from;
+            tour[to] = first;
+            positions[first] = to;
+            from = (from + 1) % size;
+            to = (to - 1 + size) % size;
+        }
+    }
+
+    /**
+     * Checks whether a house lies on the segment of the given length starting at s1.
+     *
+     * @param house   The house to check
+     * @param s1      The first house of the segment
+     * @param length  Number of houses in the segment
+     * @param forward Whether the segment runs forward from s1
+     * @return true if the house is on the segment
+     */
+    private boolean insideSegment(int house, int s1, int length, boolean forward) {
+        int offset = forward ? positions[house] - positions[s1] : positions[s1] - positions[house];
+        offset = (offset + size) % size;
+        return offset < length;
+    }
+
+    /**
+     * Returns the house next to the given one in the given direction.
+     *
+     * @param house   The house
+     * @param forward Whether to step forward or backward
+     * @return The neighbouring house in the tour
+     */
+    private int step(int house, boolean forward) {
+        return forward ? next(house) : previous(house);
+    }
+
+    /**
+     * Returns the house after the given one in the tour.
+     *
+     * @param house The house
+     * @return The next house
+     */
+    private int next(int house) {
+        int position = positions[house] + 1;
+        return tour[position == size ? 0 : position];
+    }
+
+    /**
+     * Returns the house before the given one in the tour.
+     *
+     * @param house The house
+     * @return The previous house
+     */
+    private int previous(int house) {
+        int position = positions[house] - 1;
+        return tour[position < 0 ? size - 1 : position];
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return distances.get(i, j);
+    }
+
+    /**
+     * Clears the don't-look bits of the houses around a moved segment.
+     *
+     * @param p  The house that was before the segment
+     * @param nx The house that was after the segment
+     * @param s2 The last house of the segment
+     * @param c  The neighbour the segment was moved next to
+     * @param e  The house on the other side of the insertion edge
+     */
+    private void pushEndpoints(int p, int nx, int s2, int c, int e) {
+        push(p);
+        push(nx);
+        push(s2);
+        push(c);
+        push(e);
+    }
+
+    /**
+     * Clears the don't-look bit of a house by adding it to the queue.
+     *
+     * @param house The house to look at again
+     */
+    private void push(int house) {
+        if (!queued[house]) {
+            queued[house] = true;
+            queue[(queueHead + queueSize) % size] = house;
+            queueSize++;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Ways the colony can store its symmetric per-edge matrices: distances, heuristic values and pheromones.
+ * Memory per matrix for n houses is given next to each option.
+ */
+public enum MatrixStorage {
+
+    /** Both halves as doubles on the heap, 8 n^2 bytes, the fastest layout for small instances */
+    FULL,
+
+    /** Upper triangle as doubles on the heap, about 4 n^2 bytes, results match the full layout */
+    TRIANGLE,
+
+    /** Upper triangle as floats on the heap, about 2 n^2 bytes, values are rounded to float precision */
+    FLOAT_TRIANGLE,
+
+    /**
+     * Upper triangle as floats in direct buffers outside the heap, about 2 n^2 bytes,
+     * for instances whose triangle does not fit in a single array
+     */
+    OFF_HEAP_FLOAT_TRIANGLE
+}
@@ -0,0 +1,162 @@
+import java.util.SplittableRandom;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel mode of the Ant Colony Optimization method.
+ * The ants of an iteration are constructed concurrently on a ForkJoinPool against the same pheromone matrix,
+ * then their deposits and the best tour update are merged in ant order once all of them are done,
+ * following the update rule of the colony's variant.
+ * Every ant gets its own stream split from a single seeded SplittableRandom before the iteration starts,
+ * so a run is reproducible for a given seed no matter how many threads are used.
+ * An iteration can be cut short when a stop is requested, the ants that had not started by then are left out.
+ */
+public class ParallelColony {
+
+    /** The colony whose pheromone matrix the ants share */
+    final AntColony colony;
+
+    /** Reusable buffers, one ant per slot of an iteration */
+    final Ant[] ants;
+
+    /** Random number streams of the ants in the current iteration */
+    final SplittableRandom[] randoms;
+
+    /** Source that every ant stream is split from */
+    final SplittableRandom seeder;
+
+    /** Pool that constructs the tours */
+    final ForkJoinPool pool;
+
+    /** Whether every ant of the current iteration was constructed */
+    final boolean[] built;
+
+    /** Asked before every ant but the first whether the iteration should be cut short, null to never cut it */
+    private BooleanSupplier stopCheck;
+
+    /**
+     * Constructs a parallel colony.
+     *
+     * @param colony      The colony to construct tours on
+     * @param antCount    Number of ants per iteration
+     * @param threadCount Number of worker threads
+     * @param seed        Seed of the random number streams
+     */
+    ParallelColony(AntColony colony, int antCount, int threadCount, long seed) {
+        this.colony = colony;
+        this.ants = new Ant[antCount];
+        for (int i = 0; i < antCount; i++) {
+            ants[i] = colony.newAnt();
+        }
+        this.randoms = new SplittableRandom[antCount];
+        this.seeder = new SplittableRandom(seed);
+        this.pool = new ForkJoinPool(threadCount);
+        this.built = new boolean[antCount];
+        // Local updates would race between the workers, apply them in ant order after the iteration instead
+        colony.deferLocalUpdates = true;
+    }
+
+    /**
+     * Cuts iterations short once the given check returns true: the ants that have not started are skipped,
+     * and the iteration is finished with the tours built so far. The first ant is always built.
+     *
+     * @param stopCheck Called from the worker threads before every ant, for example a monitor's deadline check
+     */
+    void stopWhen(BooleanSupplier stopCheck) {
+        this.stopCheck = stopCheck;
+    }
+
+    /**
+     * Runs one iteration: constructs all tours in parallel, then updates the best tour and the pheromones.
+     *
+     * @param Q                 Q value for updating pheromone levels
+     * @param degradationFactor Factor by which the pheromones evaporate
+     * @return Length of the best tour of this iteration
+     */
+    double runIteration(double Q, double degradationFactor) {
+        // Split the streams on the calling thread so ant i always gets the same stream
+        for (int i = 0; i < ants.length; i++) {
+            randoms[i] = seeder.split();
+        }
+        pool.invoke(new ConstructTask(0, ants.length));
+
+        // Merge the results in ant order so the outcome does not depend on scheduling
+        int count = 0;
+        for (boolean antBuilt : built) {
+            if (antBuilt) {
+                count++;
+            }
+        }
+        Ant[] finished = ants;
+        if (count < ants.length) {
+            // The iteration was cut short, only the constructed tours count
+            finished = new Ant[count];
+            count = 0;
+            for (int i = 0; i < ants.length; i++) {
+                if (built[i]) {
+                    finished[count++] = ants[i];
+                }
+            }
+        }
+        return colony.finishIteration(finished, Q, degradationFactor);
+    }
+
+    /**
+     * Advances the random number streams past iterations that were already run, for a run resumed from
+     * a checkpoint. Splitting is cheap, so replaying the splits restores the streams exactly.
+     *
+     * @param iterations Number of iterations to skip
+     */
+    void skipIterations(int iterations) {
+        for (long i = 0; i < (long) iterations * ants.length; i++) {
+            seeder.split();
+        }
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Constructs the tours of a range of ants, splitting the range until a single ant is left.
+     */
+    @SuppressWarnings("serial") // Tasks only live in the pool and are never serialized
+    private class ConstructTask extends RecursiveAction {
+
+        /** First ant of the range */
+        private final int from;
+
+        /** One past the last ant of the range */
+        private final int to;
+
+        /**
+         * Constructs a task for the ants in [from, to).
+         *
+         * @param from First ant of the range
+         * @param to   One past the last ant of the range
+         */
+        ConstructTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    built[i] = i == 0 || stopCheck == null || !stopCheck.getAsBoolean();
+                    if (built[i]) {
+                        colony.constructTour(ants[i], randoms[i]);
+                    }
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ConstructTask(from, middle), new ConstructTask(middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,459 @@
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulated annealing run as parallel tempering.
+ * Several replicas of the tour are kept at fixed temperatures spread geometrically between a hot and a cold one,
+ * each on its own thread. A replica tries random 2-opt and Or-opt moves towards the nearest neighbours of a house,
+ * every move is evaluated in O(1) from the edges it replaces and accepted by the Metropolis rule.
+ * After every round of moves, neighbouring replicas on the temperature ladder swap their tours with the usual
+ * exchange probability, so good tours found by hot replicas sink to the cold ones while trapped cold tours
+ * get a chance to escape. Temperatures are given as shares of the mean distance from a house to its nearest
+ * neighbour, so the same settings fit maps of any scale.
+ * Every replica draws from its own stream split from the seed and carries it along when it is swapped,
+ * and the exchanges are decided on the calling thread, so a run is reproducible for a given seed.
+ */
+public class ParallelTempering {
+
+    /** Neighbours every move is tried towards */
+    private static final int NEIGHBOURS = 10;
+
+    /** Longest segment that Or-opt moves */
+    private static final int MAX_SEGMENT_LENGTH = 3;
+
+    /** Number of houses */
+    private final int size;
+
+    /** Distances, computed from the coordinates */
+    private final SymmetricMatrix distances;
+
+    /** Flat neighbour lists, the neighbours of house i are stored nearest first at [i * neighbourCount] */
+    private final int[] neighbours;
+
+    /** Number of neighbours every house has */
+    private final int neighbourCount;
+
+    /** Temperature of every rung of the ladder, hottest first */
+    final double[] temperatures;
+
+    /** The replica currently at every rung of the ladder */
+    private final Replica[] replicas;
+
+    /** Decides the exchanges */
+    private final SplittableRandom random;
+
+    /** Parameters of the run */
+    private final SolverConfig config;
+
+    /** The best tour found */
+    final int[] bestTour;
+
+    /** Length of the best tour found */
+    double bestLength = Double.MAX_VALUE;
+
+    /** Number of rounds run */
+    int rounds;
+
+    /** Number of exchanges tried */
+    int exchangesTried;
+
+    /** Number of exchanges accepted */
+    int exchangesAccepted;
+
+    /**
+     * Sets up the replicas, all starting from the same constructed tour.
+     *
+     * @param houses List of houses
+     * @param config Parameters of the run: replicas, temperatures, rounds, seed, threads and the stopping rules
+     */
+    ParallelTempering(ArrayList<House> houses, SolverConfig config) {
+        this.config = config;
+        this.size = houses.size();
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = houses.get(i).x;
+            ys[i] = houses.get(i).y;
+        }
+        this.distances = SymmetricMatrix.distances(xs, ys);
+        this.neighbourCount = Math.max(0, Math.min(NEIGHBOURS, size - 1));
+        this.neighbours = new int[size * neighbourCount];
+        double nearestTotal = 0;
+        if (neighbourCount > 0) {
+            KdTree tree = new KdTree(xs, ys);
+            int[] nearest = new int[neighbourCount];
+            for (int i = 0; i < size; i++) {
+                tree.nearest(i, neighbourCount, nearest);
+                System.arraycopy(nearest, 0, neighbours, i * neighbourCount, neighbourCount);
+                nearestTotal += distances.get(i, nearest[0]);
+            }
+        }
+        double scale = size > 0 ? nearestTotal / size : 0;
+
+        int replicaCount = Math.max(1, config.replicaCount);
+        this.temperatures = new double[replicaCount];
+        for (int k = 0; k < replicaCount; k++) {
+            double position = replicaCount == 1 ? 1 : (double) k / (replicaCount - 1);
+            temperatures[k] = scale * config.hottestTemperature
+                    * Math.pow(config.coldestTemperature / config.hottestTemperature, position);
+        }
+
+        InitialTour.Heuristic heuristic = config.warmStart != null ? config.warmStart
+                : InitialTour.Heuristic.GREEDY_EDGE;
+        int[] start = new InitialTour(xs, ys).build(heuristic);
+        this.bestTour = start.clone();
+        this.bestLength = tourLength(start);
+        this.random = new SplittableRandom(config.seed);
+        this.replicas = new Replica[replicaCount];
+        for (int k = 0; k < replicaCount; k++) {
+            replicas[k] = new Replica(start, bestLength, random.split());
+        }
+    }
+
+    /**
+     * Runs rounds of moves and exchanges until the iteration count is reached or a stopping rule applies,
+     * then polishes the best tour with 2-opt and Or-opt.
+     *
+     * @return The best tour found, as house indices
+     * @throws IllegalStateException if a replica fails
+     */
+    int[] solve() {
+        if (size < 5) {
+            return bestTour;
+        }
+        long startTime = System.nanoTime();
+        int stalled = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(replicas.length,
+                config.threadCount)));
+        try {
+            for (rounds = 0; rounds < config.iterationCount; ) {
+                runRound(pool);
+                rounds++;
+                boolean improved = false;
+                for (Replica replica : replicas) {
+                    if (replica.length < bestLength - 1e-10) {
+                        bestLength = replica.length;
+                        System.arraycopy(replica.tour, 0, bestTour, 0, size);
+                        improved = true;
+                    }
+                }
+                exchange();
+                stalled = improved ? 0 : stalled + 1;
+                if (config.stallIterations > 0 && stalled >= config.stallIterations
+                        || config.targetDistance > 0 && bestLength <= config.targetDistance
+                        || config.timeBudgetMillis > 0
+                        && System.nanoTime() - startTime >= config.timeBudgetMillis * 1_000_000) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        LocalSearch polish = new LocalSearch(size, distances, neighbours, neighbourCount);
+        bestLength = polish.improve(bestTour, bestLength);
+        return bestTour;
+    }
+
+    /**
+     * Runs one round of moves on every replica in parallel, each at the temperature of its rung.
+     *
+     * @param pool Pool that runs the replicas
+     * @throws IllegalStateException if a replica fails
+     */
+    private void runRound(ExecutorService pool) {
+        ArrayList<Callable<Void>> tasks = new ArrayList<>(replicas.length);
+        long moves = (long) size * Math.max(1, config.sweepsPerRound);
+        for (int k = 0; k < replicas.length; k++) {
+            Replica replica = replicas[k];
+            double temperature = temperatures[k];
+            tasks.add(() -> {
+                replica.anneal(temperature, moves);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Tries to swap the replicas of neighbouring rungs, the even pairs after even rounds and the odd pairs after
+     * odd ones. A swap is accepted with probability min(1, exp((1 / T_i - 1 / T_j) (L_i - L_j))),
+     * always when the colder rung holds the longer tour.
+     */
+    private void exchange() {
+        for (int k = rounds % 2; k + 1 < replicas.length; k += 2) {
+            Replica hot = replicas[k];
+            Replica cold = replicas[k + 1];
+            double exponent = (1 / temperatures[k + 1] - 1 / temperatures[k]) * (cold.length - hot.length);
+            exchangesTried++;
+            if (exponent >= 0 || random.nextDouble() < Math.exp(exponent)) {
+                replicas[k] = cold;
+                replicas[k + 1] = hot;
+                exchangesAccepted++;
+            }
+        }
+    }
+
+    /**
+     * Calculates the length of a closed tour.
+     *
+     * @param tour The tour as house indices
+     * @return The length of the tour
+     */
+    private double tourLength(int[] tour) {
+        double length = 0;
+        for (int i = 0; i < tour.length; i++) {
+            length += distances.get(tour[i], tour[(i + 1) % tour.length]);
+        }
+        return length;
+    }
+
+    /**
+     * One tour of the ladder with its own random stream. The tour is kept as a plain int array with a position
+     * index, and every reversal flips the shorter side of the tour, like the local search does.
+     */
+    private final class Replica {
+
+        /** The tour */
+        final int[] tour;
+
+        /** Position of every house in the tour */
+        private final int[] positions;
+
+        /** Length of the tour */
+        double length;
+
+        /** Random number stream of the replica */
+        private final SplittableRandom random;
+
+        /**
+         * Constructs a replica.
+         *
+         * @param start  The tour it starts from, copied
+         * @param length The length of the tour
+         * @param random Random number stream of the replica
+         */
+        Replica(int[] start, double length, SplittableRandom random) {
+            this.tour = start.clone();
+            this.positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[tour[i]] = i;
+            }
+            this.length = length;
+            this.random = random;
+        }
+
+        /**
+         * Tries the given number of moves at a temperature, half of them 2-opt and half Or-opt.
+         *
+         * @param temperature The temperature
+         * @param moves       Number of moves to try
+         */
+        void anneal(double temperature, long moves) {
+            for (long m = 0; m < moves; m++) {
+                if (random.nextBoolean()) {
+                    tryTwoOpt(temperature);
+                } else {
+                    tryOrOpt(temperature);
+                }
+            }
+        }
+
+        /**
+         * Tries a random 2-opt move that connects a house to one of its neighbours.
+         * The edges (a, b) and (c, d) are replaced with (a, c) and (b, d).
+         *
+         * @param temperature The temperature
+         */
+        private void tryTwoOpt(double temperature) {
+            int a = random.nextInt(size);
+            int c = neighbours[a * neighbourCount + random.nextInt(neighbourCount)];
+            boolean forward = random.nextBoolean();
+            int b = step(a, forward);
+            int d = step(c, forward);
+            if (c == b || d == a) {
+                return;
+            }
+            double delta = distance(a, c) + distance(b, d) - distance(a, b) - distance(c, d);
+            if (accept(delta, temperature)) {
+                twoOptMove(a, b, c, d);
+                length += delta;
+            }
+        }
+
+        /**
+         * Tries to move a random segment of up to three houses next to a neighbour of its first house,
+         * in either orientation.
+         *
+         * @param temperature The temperature
+         */
+        private void tryOrOpt(double temperature) {
+            int segmentLength = 1 + random.nextInt(MAX_SEGMENT_LENGTH);
+            boolean forward = random.nextBoolean();
+            int s1 = random.nextInt(size);
+            int s2 = s1;
+            for (int i = 1; i < segmentLength; i++) {
+                s2 = step(s2, forward);
+            }
+            int p = step(s1, !forward);
+            int nx = step(s2, forward);
+            if (p == nx || p == s2) {
+                return;
+            }
+            int c = neighbours[s1 * neighbourCount + random.nextInt(neighbourCount)];
+            if (insideSegment(c, s1, segmentLength, forward)) {
+                return;
+            }
+            double removed = distance(p, s1) + distance(s2, nx) - distance(p, nx);
+            if (random.nextBoolean()) {
+                // Insert between c and the house after it, giving (c, s1) and (s2, e)
+                int e = step(c, forward);
+                if (insideSegment(e, s1, segmentLength, forward)) {
+                    return;
+                }
+                double delta = distance(c, s1) + distance(s2, e) - distance(c, e) - removed;
+                if (accept(delta, temperature)) {
+                    orOptMove(p, s1, s2, nx, c, e, true);
+                    length += delta;
+                }
+            } else {
+                // Insert between the house before c and c, giving (e, s2) and (s1, c)
+                int e = step(c, !forward);
+                if (insideSegment(e, s1, segmentLength, forward)) {
+                    return;
+                }
+                double delta = distance(e, s2) + distance(s1, c) - distance(e, c) - removed;
+                if (accept(delta, temperature)) {
+                    orOptMove(p, s1, s2, nx, e, c, false);
+                    length += delta;
+                }
+            }
+        }
+
+        /**
+         * Metropolis rule: improvements are always accepted, a longer tour with probability exp(-delta / T).
+         *
+         * @param delta       Change of the tour length
+         * @param temperature The temperature
+         * @return true if the move is accepted
+         */
+        private boolean accept(double delta, double temperature) {
+            return delta <= 0 || temperature > 0 && random.nextDouble() < Math.exp(-delta / temperature);
+        }
+
+        /**
+         * Moves the segment s1..s2 that sits between p and nx to the edge (x, y),
+         * where p, s1, s2, nx, x and y appear in this order in one direction of the tour.
+         *
+         * @param p         The house before the segment
+         * @param s1        The first house of the segment
+         * @param s2        The last house of the segment
+         * @param nx        The house after the segment
+         * @param x         The house the segment is inserted after
+         * @param y         The house the segment is inserted before
+         * @param s1NextToX Whether the result should contain (x, s1) and (s2, y) rather than (x, s2) and (s1, y)
+         */
+        private void orOptMove(int p, int s1, int s2, int nx, int x, int y, boolean s1NextToX) {
+            twoOptMove(p, s1, x, y);
+            twoOptMove(p, x, nx, s2);
+            if (s1NextToX && s1 != s2) {
+                twoOptMove(x, s2, s1, y);
+            }
+        }
+
+        /**
+         * Replaces the edges (a, b) and (c, d) with (a, c) and (b, d) by reversing the path between them.
+         * b must follow a and d must follow c in the same direction of the tour, which may be either.
+         *
+         * @param a First house of the first edge
+         * @param b Second house of the first edge
+         * @param c First house of the second edge
+         * @param d Second house of the second edge
+         */
+        private void twoOptMove(int a, int b, int c, int d) {
+            if (step(a, true) == b) {
+                reverse(positions[b], positions[c]);
+            } else {
+                reverse(positions[c], positions[b]);
+            }
+        }
+
+        /**
+         * Reverses the tour between two positions, going forward and wrapping around the end.
+         * When the path is longer than half the tour the rest of the tour is reversed instead.
+         *
+         * @param from First position of the path
+         * @param to   Last position of the path
+         */
+        private void reverse(int from, int to) {
+            int pathLength = (to - from + size) % size + 1;
+            if (2 * pathLength > size) {
+                int newFrom = (to + 1) % size;
+                to = (from - 1 + size) % size;
+                from = newFrom;
+                pathLength = size - pathLength;
+            }
+            for (int i = 0; i < pathLength / 2; i++) {
+                int first = tour[from];
+                int second = tour[to];
+                tour[from] = second;
+                positions[second] = from;
+                tour[to] = first;
+                positions[first] = to;
+                from = (from + 1) % size;
+                to = (to - 1 + size) % size;
+            }
+        }
+
+        /**
+         * Checks whether a house lies on the segment of the given length starting at s1.
+         *
+         * @param house         The house to check
+         * @param s1            The first house of the segment
+         * @param segmentLength Number of houses in the segment
+         * @param forward       Whether the segment runs forward from s1
+         * @return true if the house is on the segment
+         */
+        private boolean insideSegment(int house, int s1, int segmentLength, boolean forward) {
+            int offset = forward ? positions[house] - positions[s1] : positions[s1] - positions[house];
+            return (offset + size) % size < segmentLength;
+        }
+
+        /**
+         * Returns the house next to the given one in the given direction.
+         *
+         * @param house   The house
+         * @param forward Whether to step forward or backward
+         * @return The neighbouring house in the tour
+         */
+        private int step(int house, boolean forward) {
+            int position = positions[house] + (forward ? 1 : -1);
+            return tour[position == size ? 0 : position < 0 ? size - 1 : position];
+        }
+
+        /**
+         * Returns the distance between two houses.
+         *
+         * @param i Index of the first house
+         * @param j Index of the second house
+         * @return The distance
+         */
+        private double distance(int i, int j) {
+            return distances.get(i, j);
+        }
+    }
+}
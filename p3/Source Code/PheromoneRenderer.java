@@ -0,0 +1,303 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * Draws the pheromone map of a colony onto an off-screen image and writes it as PNG, without a display,
+ * so snapshots of large instances can be taken on servers.
+ * Only the strongest edges of every house are kept, and of those the edges below a share of the strongest level
+ * are skipped, so a map of thousands of houses draws a few edges per house instead of n^2 lines.
+ * With candidate lists only the candidate edges are looked at, O(n k), otherwise every trail is read once,
+ * a row at a time. Edges are drawn from weak to strong with width and
+ * opacity growing with their level, and the level of detail of the houses drops as their number grows:
+ * numbers are only written on small maps and the dots shrink on large ones.
+ */
+public class PheromoneRenderer {
+
+    /** Houses up to which the house numbers are written */
+    private static final int MAX_LABELLED_HOUSES = 100;
+
+    /** Strongest edges kept per house when no top-k is given, so the threshold alone never keeps n^2 edges */
+    private static final int MAX_EDGES_PER_HOUSE = 20;
+
+    /** Number of levels the edges are drawn in */
+    private static final int LEVEL_BINS = 32;
+
+    /** Share of the image left empty around the houses */
+    private static final double MARGIN = 0.05;
+
+    /** Width and height of the image in pixels */
+    private final int imageSize;
+
+    /** Edges below this share of the strongest level are skipped, 0 to keep every edge */
+    private final double threshold;
+
+    /** Strongest edges kept per house, 0 to keep up to {@link #MAX_EDGES_PER_HOUSE} above the threshold */
+    private final int topK;
+
+    /** Width in pixels of the strongest edge */
+    private final float maxStroke;
+
+    /**
+     * Constructs a renderer.
+     *
+     * @param imageSize Width and height of the image in pixels
+     * @param threshold Edges below this share of the strongest level are skipped, 0 to keep every edge
+     * @param topK      Strongest edges kept per house, 0 to keep up to {@link #MAX_EDGES_PER_HOUSE}
+     *                  above the threshold
+     */
+    PheromoneRenderer(int imageSize, double threshold, int topK) {
+        this.imageSize = imageSize;
+        this.threshold = threshold;
+        this.topK = topK;
+        this.maxStroke = Math.max(1, imageSize / 160f);
+    }
+
+    /**
+     * Draws the pheromone map of a colony.
+     *
+     * @param colony The colony
+     * @return The image
+     */
+    BufferedImage render(AntColony colony) {
+        int size = colony.size;
+        BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, imageSize, imageSize);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (size == 0) {
+                return image;
+            }
+
+            // Fit the houses into the image, keeping their aspect ratio
+            double minX = Double.MAX_VALUE;
+            double minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE;
+            double maxY = -Double.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                minX = Math.min(minX, colony.xs[i]);
+                maxX = Math.max(maxX, colony.xs[i]);
+                minY = Math.min(minY, colony.ys[i]);
+                maxY = Math.max(maxY, colony.ys[i]);
+            }
+            double extent = Math.max(Math.max(maxX - minX, maxY - minY), 1e-12);
+            double scale = imageSize * (1 - 2 * MARGIN) / extent;
+            double offset = imageSize * MARGIN;
+            double[] px = new double[size];
+            double[] py = new double[size];
+            for (int i = 0; i < size; i++) {
+                px[i] = offset + (colony.xs[i] - minX) * scale;
+                // The y axis points up on the map and down in the image
+                py[i] = imageSize - offset - (colony.ys[i] - minY) * scale;
+            }
+
+            drawEdges(graphics, colony, px, py);
+            drawHouses(graphics, size, px, py);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Draws the pheromone map of a colony and writes it as a PNG file.
+     *
+     * @param colony The colony
+     * @param file   The PNG file
+     * @throws IOException if the file cannot be written
+     */
+    void writePng(AntColony colony, Path file) throws IOException {
+        if (!ImageIO.write(render(colony), "png", file.toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    /**
+     * Draws the strongest edges above the threshold from the weakest to the strongest. The levels are quantized
+     * into bins that share one stroke and color, so the graphics state changes once per bin rather than once
+     * per edge.
+     *
+     * @param graphics The image graphics
+     * @param colony   The colony
+     * @param px       The x-coordinates of the houses in pixels
+     * @param py       The y-coordinates of the houses in pixels
+     */
+    private void drawEdges(Graphics2D graphics, AntColony colony, double[] px, double[] py) {
+        int size = colony.size;
+        long[] edges = strongestEdges(colony, topK > 0 ? topK : MAX_EDGES_PER_HOUSE);
+        double[] levels = new double[edges.length];
+        double max = 0;
+        for (int e = 0; e < edges.length; e++) {
+            levels[e] = colony.pheromone((int) (edges[e] / size), (int) (edges[e] % size));
+            max = Math.max(max, levels[e]);
+        }
+        if (max <= 0) {
+            return;
+        }
+
+        // Count the edges of every bin, then place them bin by bin
+        int[] bins = new int[edges.length];
+        int[] starts = new int[LEVEL_BINS + 1];
+        for (int e = 0; e < edges.length; e++) {
+            bins[e] = bin(levels[e] / max);
+            if (bins[e] >= 0) {
+                starts[bins[e] + 1]++;
+            }
+        }
+        for (int bin = 0; bin < LEVEL_BINS; bin++) {
+            starts[bin + 1] += starts[bin];
+        }
+        long[] binned = new long[starts[LEVEL_BINS]];
+        int[] next = Arrays.copyOf(starts, LEVEL_BINS);
+        for (int e = 0; e < edges.length; e++) {
+            if (bins[e] >= 0) {
+                binned[next[bins[e]]++] = edges[e];
+            }
+        }
+
+        Line2D.Double line = new Line2D.Double();
+        for (int bin = 0; bin < LEVEL_BINS; bin++) {
+            float level = (bin + 1f) / LEVEL_BINS;
+            graphics.setStroke(new BasicStroke(Math.max(0.5f, maxStroke * level), BasicStroke.CAP_ROUND,
+                    BasicStroke.JOIN_ROUND));
+            graphics.setColor(new Color(0.1f, 0.2f, 0.7f, 0.15f + 0.85f * level));
+            for (int e = starts[bin]; e < starts[bin + 1]; e++) {
+                int i = (int) (binned[e] / size);
+                int j = (int) (binned[e] % size);
+                line.setLine(px[i], py[i], px[j], py[j]);
+                graphics.draw(line);
+            }
+        }
+    }
+
+    /**
+     * Returns the bin of an edge.
+     *
+     * @param level The level of the edge as a share of the strongest level
+     * @return The bin, or -1 if the edge is below the threshold
+     */
+    private int bin(double level) {
+        if (level <= 0 || level < threshold) {
+            return -1;
+        }
+        return Math.min(LEVEL_BINS - 1, (int) (level * LEVEL_BINS));
+    }
+
+    /**
+     * Lists the strongest edges of every house, an edge strong for both its houses once.
+     * With candidate lists only the candidate edges of every house are looked at, otherwise the whole row.
+     *
+     * @param colony    The colony
+     * @param edgeCount Number of edges kept per house
+     * @return The edges, edge (i, j) with i < j as i * size + j
+     */
+    private static long[] strongestEdges(AntColony colony, int edgeCount) {
+        int size = colony.size;
+        int candidateCount = colony.candidateCount;
+        int rowLength = candidateCount > 0 ? candidateCount : size;
+        int k = Math.min(edgeCount, candidateCount > 0 ? candidateCount : size - 1);
+        long[] edges = new long[size * k];
+        int[] best = new int[k];
+        double[] bestLevels = new double[k];
+        double[] row = new double[rowLength];
+        int listed = 0;
+        for (int i = 0; i < size; i++) {
+            if (candidateCount > 0) {
+                colony.pheromones.getCandidateRow(i, colony.candidates, candidateCount, row);
+            } else {
+                colony.pheromones.getRow(i, 0, size, row);
+            }
+            // Insertion into a short sorted list, strongest first
+            int found = 0;
+            for (int c = 0; c < rowLength; c++) {
+                int j = candidateCount > 0 ? colony.candidates[i * candidateCount + c] : c;
+                if (j == i) {
+                    continue;
+                }
+                double level = row[c];
+                if (found == k && !stronger(colony, i, j, level, best[k - 1], bestLevels[k - 1])) {
+                    continue;
+                }
+                int position = found < k ? found++ : k - 1;
+                while (position > 0 && stronger(colony, i, j, level, best[position - 1], bestLevels[position - 1])) {
+                    best[position] = best[position - 1];
+                    bestLevels[position] = bestLevels[position - 1];
+                    position--;
+                }
+                best[position] = j;
+                bestLevels[position] = level;
+            }
+            for (int c = 0; c < found; c++) {
+                int j = best[c];
+                edges[listed++] = i < j ? (long) i * size + j : (long) j * size + i;
+            }
+        }
+        // Drop the edges listed by both of their houses
+        Arrays.sort(edges, 0, listed);
+        int count = 0;
+        for (int e = 0; e < listed; e++) {
+            if (e == 0 || edges[e] != edges[e - 1]) {
+                edges[count++] = edges[e];
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * Compares two edges of a house by their level. Many edges share the same level, the initial one or the
+     * lower MAX-MIN limit, and among those the shorter edge counts as stronger so the map shows near neighbours.
+     *
+     * @param colony     The colony
+     * @param i          Index of the house
+     * @param j          The other house of the first edge
+     * @param level      Level of the first edge
+     * @param other      The other house of the second edge
+     * @param otherLevel Level of the second edge
+     * @return true if the first edge is stronger
+     */
+    private static boolean stronger(AntColony colony, int i, int j, double level, int other, double otherLevel) {
+        if (level != otherLevel) {
+            return level > otherLevel;
+        }
+        return colony.distances.get(i, j) < colony.distances.get(i, other);
+    }
+
+    /**
+     * Draws the houses, with numbers on small maps and smaller dots on large ones.
+     *
+     * @param graphics The image graphics
+     * @param size     Number of houses
+     * @param px       The x-coordinates of the houses in pixels
+     * @param py       The y-coordinates of the houses in pixels
+     */
+    private void drawHouses(Graphics2D graphics, int size, double[] px, double[] py) {
+        double radius = Math.max(1, Math.min(imageSize / 50.0, imageSize / (4 * Math.sqrt(size))));
+        boolean labelled = size <= MAX_LABELLED_HOUSES;
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, (int) Math.max(8, radius)));
+        Ellipse2D.Double dot = new Ellipse2D.Double();
+        for (int i = 0; i < size; i++) {
+            // The first house is the start of the tour
+            graphics.setColor(i == 0 ? new Color(245, 128, 37) : Color.LIGHT_GRAY);
+            dot.setFrame(px[i] - radius, py[i] - radius, 2 * radius, 2 * radius);
+            graphics.fill(dot);
+            if (labelled) {
+                String number = Integer.toString(i + 1);
+                graphics.setColor(Color.BLACK);
+                int width = graphics.getFontMetrics().stringWidth(number);
+                int ascent = graphics.getFontMetrics().getAscent();
+                graphics.drawString(number, (float) (px[i] - width / 2.0), (float) (py[i] + ascent / 2.0 - 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Anytime solving: runs a solver on its own thread until a deadline and always knows the best tour found so far.
+ * Every improved tour is passed to the listener as soon as the solver finds it, so a caller with a latency limit
+ * can use the latest one at any moment, or wait for the solver to stop at the deadline and take the result:
+ * <pre>
+ * SolveHandle handle = SolveHandle.antColony(houses, config, Instant.now().plusMillis(200), listener);
+ * int[] tour = handle.await();
+ * </pre>
+ * The ant colony looks at the clock between its ants and brute force every few thousand tours,
+ * so the solver stops about one tour after the deadline. The solver is set up on the solver thread as well,
+ * so the deadline covers the precomputation. Both publish a nearest neighbour tour right away, the ant colony
+ * builds it over a k-d tree in O(n log n) before it sets up the colony, so {@link #bestTour()} is only null
+ * for the moment it takes to build that tour. {@link #await()} returns by the deadline even if the set up of
+ * a large map takes longer than that, the solver is then cancelled and stops at its next check.
+ * Only tours shorter than the best one published so far are taken.
+ */
+public class SolveHandle {
+
+    /** Receives every improved tour, may be null */
+    private final TourListener listener;
+
+    /** Point in time by which the solver stops, in {@link System#nanoTime()} terms */
+    private final long deadlineNanos;
+
+    /** Thread that runs the solver */
+    private Thread thread;
+
+    /** Stops the solver once it is set up, null before */
+    private volatile Runnable canceller;
+
+    /** Set by {@link #cancel()}, also seen by a solver that is still being set up */
+    private volatile boolean cancelled;
+
+    /** The best tour published so far, null before the first one */
+    private int[] bestTour;
+
+    /** Length of the best tour published so far */
+    private double bestLength = Double.MAX_VALUE;
+
+    /** Whether the solver finished without being stopped by the deadline or a cancellation */
+    private volatile boolean complete;
+
+    /** The exception the solver failed with, null if it did not fail */
+    private volatile RuntimeException failure;
+
+    /**
+     * Constructs a handle, the solver is started separately.
+     *
+     * @param listener      Receives every improved tour, may be null
+     * @param deadlineNanos Point in time by which the solver stops, in {@link System#nanoTime()} terms
+     */
+    private SolveHandle(TourListener listener, long deadlineNanos) {
+        this.listener = listener;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Starts the Ant Colony Optimization method, which runs until its iteration count, a stopping rule
+     * of the config or the deadline, whichever comes first.
+     *
+     * @param houses   List of houses
+     * @param config   Parameters of the run
+     * @param deadline Point in time by which the solver stops
+     * @param listener Receives the nearest neighbour tour and then every improved tour at the end of the iteration
+     *                 that found it, may be null
+     * @return The handle of the run
+     */
+    static SolveHandle antColony(ArrayList<House> houses, SolverConfig config, Instant deadline,
+                                 TourListener listener) {
+        long deadlineNanos = toNanoTime(deadline);
+        SolveHandle handle = new SolveHandle(listener, deadlineNanos);
+        handle.start("anytime-aco", () -> {
+            // A tour to fall back on before the colony is even set up
+            handle.publishNearestNeighbour(houses);
+            AcoSolver solver = new AcoSolver(houses, config);
+            solver.monitor.stopAt(deadlineNanos);
+            solver.addTourListener(handle::publish);
+            handle.cancelWith(solver.monitor::cancel);
+            solver.solve();
+            ConvergenceMonitor.StopReason reason = solver.monitor.stopReason();
+            return reason != ConvergenceMonitor.StopReason.TIME_BUDGET
+                    && reason != ConvergenceMonitor.StopReason.CANCELLED;
+        });
+        return handle;
+    }
+
+    /**
+     * Starts the brute-force method, which stops at the deadline unless it enumerated every tour before.
+     *
+     * @param houses   List of houses
+     * @param deadline Point in time by which the solver stops
+     * @param listener Receives every improved tour as soon as it is found, may be null
+     * @return The handle of the run
+     */
+    static SolveHandle bruteForce(ArrayList<House> houses, Instant deadline, TourListener listener) {
+        long deadlineNanos = toNanoTime(deadline);
+        SolveHandle handle = new SolveHandle(listener, deadlineNanos);
+        handle.start("anytime-brute-force", () -> {
+            BruteForce solver = new BruteForce(houses.size(), AntColony.distanceMatrix(houses));
+            solver.stopAt(deadlineNanos);
+            solver.publishTo(handle::publish);
+            handle.cancelWith(solver::cancel);
+            solver.solve();
+            return solver.complete;
+        });
+        return handle;
+    }
+
+    /**
+     * Starts the solver thread.
+     *
+     * @param name Name of the thread
+     * @param run  Sets up and runs the solver, returns whether it finished without being stopped
+     */
+    private void start(String name, BooleanSupplier run) {
+        thread = new Thread(() -> {
+            try {
+                complete = run.getAsBoolean();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }, name);
+        // A forgotten handle must not keep the virtual machine alive
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Registers how the solver is stopped, and stops it right away if the handle was cancelled during the set up.
+     *
+     * @param stop Stops the solver
+     */
+    private void cancelWith(Runnable stop) {
+        canceller = stop;
+        if (cancelled) {
+            stop.run();
+        }
+    }
+
+    /**
+     * Publishes the nearest neighbour tour of the houses.
+     *
+     * @param houses List of houses
+     */
+    private void publishNearestNeighbour(ArrayList<House> houses) {
+        int size = houses.size();
+        if (size == 0) {
+            return;
+        }
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = houses.get(i).x;
+            ys[i] = houses.get(i).y;
+        }
+        int[] tour = new InitialTour(xs, ys).build(InitialTour.Heuristic.NEAREST_NEIGHBOUR);
+        double length = 0;
+        for (int i = 0; i < size; i++) {
+            length += AntColony.distance(houses.get(tour[i]), houses.get(tour[(i + 1) % size]));
+        }
+        publish(tour, length);
+    }
+
+    /**
+     * Records an improved tour and passes it to the listener, tours that are not shorter than the best one
+     * are ignored.
+     *
+     * @param tour   The tour as house indices
+     * @param length The length of the tour
+     */
+    private void publish(int[] tour, double length) {
+        synchronized (this) {
+            if (length >= bestLength) {
+                return;
+            }
+            bestTour = tour;
+            bestLength = length;
+        }
+        if (listener != null) {
+            listener.improved(tour, length);
+        }
+    }
+
+    /**
+     * Returns the best tour published so far.
+     *
+     * @return A copy of the tour as house indices, or null if no tour was published yet
+     */
+    synchronized int[] bestTour() {
+        return bestTour == null ? null : bestTour.clone();
+    }
+
+    /**
+     * Returns the length of the best tour published so far.
+     *
+     * @return The length, or Double.MAX_VALUE if no tour was published yet
+     */
+    synchronized double bestLength() {
+        return bestLength;
+    }
+
+    /**
+     * Stops the solver as soon as possible, the best tour found so far stays available.
+     */
+    void cancel() {
+        cancelled = true;
+        Runnable stop = canceller;
+        if (stop != null) {
+            stop.run();
+        }
+    }
+
+    /**
+     * Returns whether the solver has stopped.
+     *
+     * @return true once the solver thread has ended
+     */
+    boolean isDone() {
+        return !thread.isAlive();
+    }
+
+    /**
+     * Returns whether the solver ended on its own rather than at the deadline or by a cancellation.
+     * For brute force this means the returned tour is optimal.
+     *
+     * @return true if the run was complete, false while it runs or if it was stopped
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Waits for the solver to stop, but no longer than until the deadline. A solver that is still running then,
+     * for example one still setting up, is cancelled and the best tour published so far is returned.
+     *
+     * @return The best tour found, or null if the solver stopped before it found one
+     * @throws InterruptedException  if the waiting thread is interrupted
+     * @throws IllegalStateException if the solver failed
+     */
+    int[] await() throws InterruptedException {
+        TimeUnit.NANOSECONDS.timedJoin(thread, deadlineNanos - System.nanoTime());
+        if (thread.isAlive()) {
+            cancel();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Solver failed", failure);
+        }
+        return bestTour();
+    }
+
+    /**
+     * Converts a point in time to {@link System#nanoTime()} terms.
+     *
+     * @param deadline The point in time
+     * @return The same point in time on the nano time clock
+     */
+    private static long toNanoTime(Instant deadline) {
+        return System.nanoTime() + Duration.between(Instant.now(), deadline).toNanos();
+    }
+}
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Parameters of a solver run. The defaults are the parameters of the main program,
+ * a batch run reads its parameters from a properties file with the field names as keys, for example:
+ * <pre>
+ * method = aco
+ * iterationCount = 200
+ * variant = MAX_MIN
+ * candidateCount = 15
+ * </pre>
+ */
+public class SolverConfig implements Cloneable {
+
+    /** Method used to solve the TSP: aco, spatial, annealing, heldKarp, branchAndBound or bruteForce */
+    String method = "aco";
+
+    /** Number of iterations */
+    int iterationCount = 100;
+
+    /** Number of ants per iteration */
+    int antCountPerIteration = 50;
+
+    /** Evaporation rate */
+    double degradationFactor = 0.92;
+
+    /** Parameter controlling influence of pheromones */
+    double alpha = 1.8;
+
+    /** Parameter controlling influence of distance */
+    double beta = 2.5;
+
+    /** Q value for updating pheromone levels */
+    double Q = 0.0001;
+
+    /** Pheromone level every edge starts with */
+    double initialPheromone = 0.1;
+
+    /** Seed of the random numbers, fix it to reproduce a run */
+    long seed = System.nanoTime();
+
+    /** Construct the ants of each iteration in parallel */
+    boolean parallel = false;
+
+    /** Worker threads of the parallel mode */
+    int threadCount = Runtime.getRuntime().availableProcessors();
+
+    /** Nearest neighbours every house considers, 0 to consider every house */
+    int candidateCount = 0;
+
+    /** Neighbours checked by 2-opt and Or-opt on every tour, 0 to skip it */
+    int localSearchNeighbours = 0;
+
+    /** Heuristic that builds a first tour to seed the best tour and the initial trails from, null to skip */
+    InitialTour.Heuristic warmStart = null;
+
+    /** Share by which the trails along the warm start tour start higher than the others */
+    double warmStartBias = 0;
+
+    /** Pheromone update rule (Ant System, MAX-MIN or ACS) */
+    ColonyVariant variant = ColonyVariant.ANT_SYSTEM;
+
+    /** Matrix layout, triangle or float layouts save memory on large maps */
+    MatrixStorage storage = MatrixStorage.FULL;
+
+    /** Evaporate through a common factor of the trails in O(1) instead of scaling every trail each iteration */
+    boolean lazyEvaporation = false;
+
+    /** Independent colonies of the island model, each on its own thread, 1 for a single colony */
+    int islandCount = 1;
+
+    /** Island model: the colonies exchange information every this many iterations */
+    int migrationInterval = 10;
+
+    /** Island model: what the colonies exchange */
+    IslandColonies.MigrationMode migrationMode = IslandColonies.MigrationMode.BEST_TOUR;
+
+    /** Island model: share of the average trail every colony blends into its own with BLEND_PHEROMONES */
+    double migrationWeight = 0.1;
+
+    /** Iterations of the warm-started run after a house is added to or removed from a dynamic route */
+    int reoptimizeIterations = 10;
+
+    /** Spatial decomposition: largest number of houses solved as one cluster */
+    int clusterSize = 100;
+
+    /** Parallel tempering: number of replicas, each at its own temperature on its own thread */
+    int replicaCount = 8;
+
+    /** Parallel tempering: temperature of the hottest replica, as a share of the mean nearest neighbour distance */
+    double hottestTemperature = 0.3;
+
+    /** Parallel tempering: temperature of the coldest replica, as a share of the mean nearest neighbour distance */
+    double coldestTemperature = 0.005;
+
+    /** Parallel tempering: moves every replica tries per house between two exchanges */
+    int sweepsPerRound = 10;
+
+    /** Stop once the best path has not improved for this many iterations, 0 to run all */
+    int stallIterations = 0;
+
+    /** Stop once a path at most this long is found, 0 for no target */
+    double targetDistance = 0;
+
+    /** Stop once this much time has passed, 0 for no budget */
+    long timeBudgetMillis = 0;
+
+    /** File the metrics of every iteration are written to (.csv or .json), null to skip */
+    String telemetryFile = null;
+
+    /** File the state of the run is saved to, null to never save it */
+    String checkpointFile = null;
+
+    /** The state is saved every this many iterations, and when the time budget ends the run, 0 for only then */
+    int checkpointInterval = 0;
+
+    /** Continue from the checkpoint file with its saved parameters if it exists */
+    boolean resume = false;
+
+    /** Batch runs write a PNG of the pheromone map every this many iterations, 0 to skip */
+    int snapshotInterval = 0;
+
+    /** Folder the pheromone map snapshots are written to */
+    String snapshotFolder = "snapshots";
+
+    /** Width and height of the snapshots in pixels */
+    int snapshotSize = 800;
+
+    /** Snapshots skip edges below this share of the strongest pheromone level */
+    double snapshotThreshold = 0.05;
+
+    /** Snapshots only draw the strongest edges of every house, 0 to draw up to 20 per house above the threshold */
+    int snapshotTopK = 5;
+
+    /**
+     * Creates an independent copy of this configuration.
+     *
+     * @return The copy
+     */
+    SolverConfig copy() {
+        try {
+            return (SolverConfig) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Reads a configuration from a properties file, parameters that are not listed keep their defaults.
+     *
+     * @param path The properties file
+     * @return The configuration
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a key is unknown or a value is invalid
+     */
+    static SolverConfig load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        SolverConfig config = new SolverConfig();
+        for (String key : properties.stringPropertyNames()) {
+            config.set(key, properties.getProperty(key).trim());
+        }
+        return config;
+    }
+
+    /**
+     * Sets a parameter by its name.
+     *
+     * @param key   Name of the parameter
+     * @param value Value of the parameter
+     * @throws IllegalArgumentException if the key is unknown or the value is invalid
+     */
+    void set(String key, String value) {
+        switch (key) {
+            case "method" -> method = value;
+            case "iterationCount" -> iterationCount = Integer.parseInt(value);
+            case "antCountPerIteration" -> antCountPerIteration = Integer.parseInt(value);
+            case "degradationFactor" -> degradationFactor = Double.parseDouble(value);
+            case "alpha" -> alpha = Double.parseDouble(value);
+            case "beta" -> beta = Double.parseDouble(value);
+            case "Q" -> Q = Double.parseDouble(value);
+            case "initialPheromone" -> initialPheromone = Double.parseDouble(value);
+            case "seed" -> seed = Long.parseLong(value);
+            case "parallel" -> parallel = Boolean.parseBoolean(value);
+            case "threadCount" -> threadCount = Integer.parseInt(value);
+            case "candidateCount" -> candidateCount = Integer.parseInt(value);
+            case "localSearchNeighbours" -> localSearchNeighbours = Integer.parseInt(value);
+            case "warmStart" -> warmStart = value.equals("none") ? null : InitialTour.Heuristic.valueOf(value);
+            case "warmStartBias" -> warmStartBias = Double.parseDouble(value);
+            case "variant" -> variant = ColonyVariant.valueOf(value);
+            case "storage" -> storage = MatrixStorage.valueOf(value);
+            case "lazyEvaporation" -> lazyEvaporation = Boolean.parseBoolean(value);
+            case "islandCount" -> islandCount = Integer.parseInt(value);
+            case "migrationInterval" -> migrationInterval = Integer.parseInt(value);
+            case "migrationMode" -> migrationMode = IslandColonies.MigrationMode.valueOf(value);
+            case "migrationWeight" -> migrationWeight = Double.parseDouble(value);
+            case "reoptimizeIterations" -> reoptimizeIterations = Integer.parseInt(value);
+            case "clusterSize" -> clusterSize = Integer.parseInt(value);
+            case "replicaCount" -> replicaCount = Integer.parseInt(value);
+            case "hottestTemperature" -> hottestTemperature = Double.parseDouble(value);
+            case "coldestTemperature" -> coldestTemperature = Double.parseDouble(value);
+            case "sweepsPerRound" -> sweepsPerRound = Integer.parseInt(value);
+            case "stallIterations" -> stallIterations = Integer.parseInt(value);
+            case "targetDistance" -> targetDistance = Double.parseDouble(value);
+            case "timeBudgetMillis" -> timeBudgetMillis = Long.parseLong(value);
+            case "telemetryFile" -> telemetryFile = value;
+            case "checkpointFile" -> checkpointFile = value;
+            case "checkpointInterval" -> checkpointInterval = Integer.parseInt(value);
+            case "resume" -> resume = Boolean.parseBoolean(value);
+            case "snapshotInterval" -> snapshotInterval = Integer.parseInt(value);
+            case "snapshotFolder" -> snapshotFolder = value;
+            case "snapshotSize" -> snapshotSize = Integer.parseInt(value);
+            case "snapshotThreshold" -> snapshotThreshold = Double.parseDouble(value);
+            case "snapshotTopK" -> snapshotTopK = Integer.parseInt(value);
+            default -> throw new IllegalArgumentException("Unknown parameter " + key);
+        }
+    }
+}
@@ -0,0 +1,445 @@
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Divide-and-conquer solver for maps far too large for a single colony.
+ * The houses are split into clusters of at most {@link SolverConfig#clusterSize} houses by cutting the bounding box
+ * of every group at the median of its longer side, so dense areas get small cells and every cluster is about as
+ * full as the others. Every cluster is solved on its own on a pool of threads, exactly with Held-Karp when it is
+ * small and with Ant Colony Optimization otherwise. The clusters are visited in the order of a tour over their
+ * centroids, which is solved the same way, so a map of any size is split again at the next level.
+ * Every cluster tour is opened at the edge that joins it most cheaply to its neighbours in that order,
+ * and the stitched tour is repaired with 2-opt and Or-opt moves over the whole map.
+ * No distance matrix of the whole map is built: the repair computes distances from the coordinates,
+ * so memory grows linearly and time grows with n log n for the splitting and linearly for the clusters.
+ */
+public class SpatialDecomposition {
+
+    /** Clusters up to this size are solved exactly */
+    private static final int EXACT_SIZE = 10;
+
+    /** Neighbours the repair moves are tried towards when the config does not set local search neighbours */
+    private static final int REPAIR_NEIGHBOURS = 10;
+
+    /** Parameters of the cluster runs */
+    private final SolverConfig config;
+
+    /** The x-coordinates of the houses */
+    private final double[] xs;
+
+    /** The y-coordinates of the houses */
+    private final double[] ys;
+
+    /** Number of houses */
+    private final int size;
+
+    /** Length of the best tour after solving */
+    double bestLength;
+
+    /** Number of clusters of the last solve */
+    int clusterCount;
+
+    /**
+     * Constructs a solver over the given houses.
+     *
+     * @param houses List of houses
+     * @param config Parameters of the cluster runs and the largest cluster size
+     */
+    SpatialDecomposition(ArrayList<House> houses, SolverConfig config) {
+        this(xsOf(houses), ysOf(houses), config);
+    }
+
+    /**
+     * Constructs a solver over the given coordinates.
+     *
+     * @param xs     The x-coordinates of the houses
+     * @param ys     The y-coordinates of the houses
+     * @param config Parameters of the cluster runs and the largest cluster size
+     */
+    private SpatialDecomposition(double[] xs, double[] ys, SolverConfig config) {
+        this.config = config;
+        this.xs = xs;
+        this.ys = ys;
+        this.size = xs.length;
+    }
+
+    /**
+     * Splits the map, solves the clusters, stitches their tours together and repairs the result.
+     *
+     * @return The tour as house indices
+     * @throws IllegalStateException if a cluster cannot be solved
+     */
+    int[] solve() {
+        int[] tour;
+        if (size <= Math.max(EXACT_SIZE, config.clusterSize)) {
+            // Small enough for a single cluster
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            clusterCount = 1;
+            tour = solveCluster(all, config.seed);
+        } else {
+            ArrayList<int[]> clusters = split();
+            clusterCount = clusters.size();
+            int[][] clusterTours = solveClusters(clusters);
+            double[] centroidXs = new double[clusterCount];
+            double[] centroidYs = new double[clusterCount];
+            for (int c = 0; c < clusterCount; c++) {
+                centroidXs[c] = centroid(clusters.get(c), xs);
+                centroidYs[c] = centroid(clusters.get(c), ys);
+            }
+            // Visit the clusters in the order of a tour over their centroids, solved by a decomposition
+            // of its own so that it stays cheap however many clusters there are
+            int[] order = new SpatialDecomposition(centroidXs, centroidYs, config).solve();
+            tour = stitch(clusterTours, order, centroidXs, centroidYs);
+        }
+        bestLength = tourLength(tour);
+
+        int neighbourCount = Math.min(config.localSearchNeighbours > 0 ? config.localSearchNeighbours
+                : REPAIR_NEIGHBOURS, size - 1);
+        if (clusterCount > 1 && neighbourCount > 0) {
+            LocalSearch repair = new LocalSearch(size, SymmetricMatrix.distances(xs, ys),
+                    nearestNeighbours(neighbourCount), neighbourCount);
+            bestLength = repair.improve(tour, bestLength);
+        }
+        return tour;
+    }
+
+    /**
+     * Splits the houses into clusters of at most the configured size by recursive median cuts.
+     * Clusters are never made smaller than the exact size, so the tour over their centroids has fewer points.
+     *
+     * @return The house indices of every cluster
+     */
+    private ArrayList<int[]> split() {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        ArrayList<int[]> clusters = new ArrayList<>();
+        split(order, 0, size, Math.max(EXACT_SIZE, config.clusterSize), clusters);
+        return clusters;
+    }
+
+    /**
+     * Cuts a range of houses at the median of the longer side of its bounding box until the parts are small enough.
+     *
+     * @param order       House indices, the range is rearranged
+     * @param from        First position of the range
+     * @param to          One past the last position of the range
+     * @param clusterSize Largest number of houses in a cluster
+     * @param clusters    List the clusters are added to
+     */
+    private void split(int[] order, int from, int to, int clusterSize, ArrayList<int[]> clusters) {
+        if (to - from <= clusterSize) {
+            int[] cluster = new int[to - from];
+            System.arraycopy(order, from, cluster, 0, cluster.length);
+            clusters.add(cluster);
+            return;
+        }
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            minX = Math.min(minX, xs[order[i]]);
+            maxX = Math.max(maxX, xs[order[i]]);
+            minY = Math.min(minY, ys[order[i]]);
+            maxY = Math.max(maxY, ys[order[i]]);
+        }
+        double[] coordinates = maxX - minX >= maxY - minY ? xs : ys;
+        int middle = (from + to) >>> 1;
+        select(order, from, to - 1, middle, coordinates);
+        split(order, from, middle, clusterSize, clusters);
+        split(order, middle, to, clusterSize, clusters);
+    }
+
+    /**
+     * Moves the house with the given rank within [low, high] to that position using quickselect,
+     * with smaller coordinates before it and larger ones after it.
+     *
+     * @param order       House indices
+     * @param low         First position of the range
+     * @param high        Last position of the range
+     * @param rank        Position that should receive its sorted house
+     * @param coordinates Coordinates the houses are compared by
+     */
+    private static void select(int[] order, int low, int high, int rank, double[] coordinates) {
+        while (low < high) {
+            double pivot = coordinates[order[(low + high) >>> 1]];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (coordinates[order[i]] < pivot) {
+                    i++;
+                }
+                while (coordinates[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Solves every cluster on the thread pool. Every cluster gets its own seed, derived from its index,
+     * so the result does not depend on scheduling.
+     *
+     * @param clusters The house indices of every cluster
+     * @return The tour of every cluster as house indices of the whole map
+     * @throws IllegalStateException if a cluster cannot be solved
+     */
+    private int[][] solveClusters(ArrayList<int[]> clusters) {
+        ArrayList<Callable<int[]>> tasks = new ArrayList<>(clusters.size());
+        for (int c = 0; c < clusters.size(); c++) {
+            int[] cluster = clusters.get(c);
+            long seed = config.seed + c;
+            tasks.add(() -> solveCluster(cluster, seed));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(clusters.size(),
+                config.threadCount)));
+        try {
+            int[][] tours = new int[clusters.size()][];
+            int c = 0;
+            for (Future<int[]> result : pool.invokeAll(tasks)) {
+                tours[c++] = result.get();
+            }
+            return tours;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Solves the tour through one cluster.
+     *
+     * @param cluster House indices of the cluster
+     * @param seed    Seed of the cluster run
+     * @return The tour as house indices of the whole map
+     */
+    private int[] solveCluster(int[] cluster, long seed) {
+        int count = cluster.length;
+        if (count <= 3) {
+            // Every order is the same tour
+            return cluster.clone();
+        }
+        ArrayList<House> houses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            houses.add(new House(xs[cluster[i]], ys[cluster[i]], i + 1));
+        }
+        int[] local;
+        if (count <= EXACT_SIZE) {
+            local = new HeldKarp(count, AntColony.distanceMatrix(houses)).solve();
+        } else {
+            local = new AcoSolver(houses, clusterConfig(seed)).solve();
+        }
+        int[] tour = new int[count];
+        for (int i = 0; i < count; i++) {
+            tour[i] = cluster[local[i]];
+        }
+        return tour;
+    }
+
+    /**
+     * Derives the parameters of a cluster run. Every cluster runs on a single thread of the pool, and the
+     * rules that only make sense for the whole map, the target length, the time budget and the files, are cleared.
+     *
+     * @param seed Seed of the cluster run
+     * @return The parameters
+     */
+    private SolverConfig clusterConfig(long seed) {
+        SolverConfig cluster = config.copy();
+        cluster.seed = seed;
+        cluster.parallel = false;
+        cluster.islandCount = 1;
+        cluster.targetDistance = 0;
+        cluster.timeBudgetMillis = 0;
+        cluster.telemetryFile = null;
+        cluster.checkpointFile = null;
+        cluster.resume = false;
+        return cluster;
+    }
+
+    /**
+     * Joins the cluster tours into one tour. Every cluster tour is opened at the edge where entering from
+     * the previous cluster and leaving towards the next one costs the least, in whichever direction is cheaper.
+     * The first cluster is entered from the centroid of the last one, and the last cluster leaves towards
+     * the house the tour starts at.
+     *
+     * @param clusterTours The tour of every cluster
+     * @param order        The cluster indices in visiting order
+     * @param centroidXs   The x-coordinates of the cluster centroids
+     * @param centroidYs   The y-coordinates of the cluster centroids
+     * @return The tour as house indices
+     */
+    private int[] stitch(int[][] clusterTours, int[] order, double[] centroidXs, double[] centroidYs) {
+        int clusters = order.length;
+        int[] tour = new int[size];
+        int position = 0;
+        double fromX = centroidXs[order[clusters - 1]];
+        double fromY = centroidYs[order[clusters - 1]];
+        for (int k = 0; k < clusters; k++) {
+            int[] cluster = clusterTours[order[k]];
+            int count = cluster.length;
+            double toX;
+            double toY;
+            if (k + 1 < clusters) {
+                toX = centroidXs[order[k + 1]];
+                toY = centroidYs[order[k + 1]];
+            } else {
+                toX = xs[tour[0]];
+                toY = ys[tour[0]];
+            }
+
+            // Remove the edge (cluster[i], cluster[i + 1]) and walk the rest forward or backward
+            int bestEdge = 0;
+            boolean forward = true;
+            double bestCost = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int a = cluster[i];
+                int b = cluster[(i + 1) % count];
+                double removed = count > 1 ? distance(a, b) : 0;
+                double forwardCost = distance(fromX, fromY, b) + distance(toX, toY, a) - removed;
+                double backwardCost = distance(fromX, fromY, a) + distance(toX, toY, b) - removed;
+                if (forwardCost < bestCost) {
+                    bestCost = forwardCost;
+                    bestEdge = i;
+                    forward = true;
+                }
+                if (backwardCost < bestCost) {
+                    bestCost = backwardCost;
+                    bestEdge = i;
+                    forward = false;
+                }
+            }
+            for (int step = 0; step < count; step++) {
+                int index = forward ? bestEdge + 1 + step : bestEdge - step + count;
+                tour[position++] = cluster[index % count];
+            }
+            int exit = tour[position - 1];
+            fromX = xs[exit];
+            fromY = ys[exit];
+        }
+        return tour;
+    }
+
+    /**
+     * Finds the nearest neighbours of every house with a k-d tree over the house coordinates.
+     *
+     * @param neighbourCount Number of neighbours per house
+     * @return Flat neighbour lists, the neighbours of house i are stored nearest first at [i * neighbourCount]
+     */
+    private int[] nearestNeighbours(int neighbourCount) {
+        int[] lists = new int[size * neighbourCount];
+        KdTree tree = new KdTree(xs, ys);
+        int[] neighbours = new int[neighbourCount];
+        for (int i = 0; i < size; i++) {
+            tree.nearest(i, neighbourCount, neighbours);
+            System.arraycopy(neighbours, 0, lists, i * neighbourCount, neighbourCount);
+        }
+        return lists;
+    }
+
+    /**
+     * Calculates the length of a closed tour.
+     *
+     * @param tour The tour as house indices
+     * @return The length of the tour
+     */
+    private double tourLength(int[] tour) {
+        double length = 0;
+        for (int i = 0; i < tour.length; i++) {
+            length += distance(tour[i], tour[(i + 1) % tour.length]);
+        }
+        return length;
+    }
+
+    /**
+     * Returns the distance between two houses.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The distance
+     */
+    private double distance(int i, int j) {
+        return distance(xs[i], ys[i], j);
+    }
+
+    /**
+     * Returns the distance between a point and a house.
+     *
+     * @param x     The x-coordinate of the point
+     * @param y     The y-coordinate of the point
+     * @param house Index of the house
+     * @return The distance
+     */
+    private double distance(double x, double y, int house) {
+        return Math.sqrt(Math.pow(x - xs[house], 2) + Math.pow(y - ys[house], 2));
+    }
+
+    /**
+     * Returns the mean of one coordinate over some houses.
+     *
+     * @param houses      House indices
+     * @param coordinates The coordinates
+     * @return The mean coordinate
+     */
+    private static double centroid(int[] houses, double[] coordinates) {
+        double sum = 0;
+        for (int house : houses) {
+            sum += coordinates[house];
+        }
+        return sum / houses.length;
+    }
+
+    /**
+     * Collects the x-coordinates of the houses.
+     *
+     * @param houses List of houses
+     * @return The x-coordinates
+     */
+    private static double[] xsOf(ArrayList<House> houses) {
+        double[] xs = new double[houses.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = houses.get(i).x;
+        }
+        return xs;
+    }
+
+    /**
+     * Collects the y-coordinates of the houses.
+     *
+     * @param houses List of houses
+     * @return The y-coordinates
+     */
+    private static double[] ysOf(ArrayList<House> houses) {
+        double[] ys = new double[houses.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = houses.get(i).y;
+        }
+        return ys;
+    }
+}
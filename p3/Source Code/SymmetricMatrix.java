@@ -0,0 +1,866 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Matrix of one value per pair of houses where the value of (i, j) equals the value of (j, i).
+ * Writing an entry therefore updates both directions at once. The full layout keeps both halves for
+ * the fastest reads, the triangle layouts keep only the entries with i <= j in a single flat array,
+ * and the off-heap layout keeps the triangle in direct buffers so it neither counts against
+ * nor is limited by the Java heap and array sizes. The candidate layout keeps only the entries between every
+ * house and its nearest neighbours, n k of them, and a single shared value for every other pair.
+ * Any layout can be wrapped to scale lazily, keeping a common factor so that scaling every entry costs O(1).
+ */
+public abstract class SymmetricMatrix {
+
+    /** Largest number of entries a single Java array can hold */
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** Number of houses */
+    final int size;
+
+    /**
+     * Constructs a matrix for the given number of houses.
+     *
+     * @param size Number of houses
+     */
+    SymmetricMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Creates a matrix with every entry set to 0.
+     *
+     * @param size    Number of houses
+     * @param storage How the entries are stored
+     * @return The new matrix
+     * @throws IllegalArgumentException if the matrix does not fit in a Java array with the chosen storage
+     */
+    static SymmetricMatrix create(int size, MatrixStorage storage) {
+        return switch (storage) {
+            case FULL -> new Full(size);
+            case TRIANGLE -> new DoubleTriangle(size);
+            case FLOAT_TRIANGLE -> new FloatTriangle(size);
+            case OFF_HEAP_FLOAT_TRIANGLE -> new OffHeapFloatTriangle(size);
+        };
+    }
+
+    /**
+     * Creates a read-only matrix of the distances between points that computes every entry when it is read,
+     * for maps too large for any stored layout. Only {@link #get(int, int)} and the row reads are supported.
+     *
+     * @param xs The x-coordinates of the points
+     * @param ys The y-coordinates of the points
+     * @return The distance matrix
+     */
+    static SymmetricMatrix distances(double[] xs, double[] ys) {
+        return new Distances(xs, ys);
+    }
+
+    /**
+     * Creates a matrix that only stores the entries between every house and its candidates, with every entry set
+     * to 0. The other pairs all read a shared value that {@link #fill(double)}, {@link #scale(double)} and
+     * {@link #clamp(double, double)} keep up to date but {@link #set(int, int, double)} leaves alone, so writes
+     * to them are dropped.
+     *
+     * @param size           Number of houses
+     * @param candidates     Flat candidate lists, the candidates of house i are stored at [i * candidateCount]
+     * @param candidateCount Number of candidates per house
+     * @return The new matrix
+     */
+    static SymmetricMatrix candidates(int size, int[] candidates, int candidateCount) {
+        return new Candidates(size, candidates, candidateCount);
+    }
+
+    /**
+     * Wraps a matrix so that {@link #scale(double)} only multiplies a common factor instead of every entry.
+     * The entries are kept divided by the factor, reads multiply them back and writes divide them, so the values
+     * read equal those of the eagerly scaled matrix up to rounding. Once the factor drops below
+     * {@link Scaled#MIN_FACTOR} it is multiplied into the entries in one pass and starts over at 1.
+     *
+     * @param matrix The matrix that stores the entries, its current values are kept
+     * @return The lazily scaled matrix
+     */
+    static SymmetricMatrix lazilyScaled(SymmetricMatrix matrix) {
+        return new Scaled(matrix);
+    }
+
+    /**
+     * Returns the matrix that holds the stored entries, which are the values divided by {@link #factor()}.
+     *
+     * @return This matrix, or the wrapped matrix if this one scales lazily
+     */
+    SymmetricMatrix stored() {
+        return this;
+    }
+
+    /**
+     * Returns the common factor of the entries not yet multiplied into the stored entries.
+     *
+     * @return The factor, always 1 unless this matrix scales lazily
+     */
+    double factor() {
+        return 1;
+    }
+
+    /**
+     * Sets the common factor of the entries without touching the stored entries, to continue a saved state.
+     *
+     * @param factor The factor
+     * @throws UnsupportedOperationException if the factor is not 1 and this matrix does not scale lazily
+     */
+    void restoreFactor(double factor) {
+        if (factor != 1) {
+            throw new UnsupportedOperationException("Only lazily scaled matrices keep a factor");
+        }
+    }
+
+    /**
+     * Returns the value of every pair the layout does not store.
+     *
+     * @return The value shared by the pairs outside the candidate lists, 0 for the layouts that store every pair
+     */
+    double background() {
+        return 0;
+    }
+
+    /**
+     * Sets the value of every pair the layout does not store, the layouts that store every pair ignore it.
+     *
+     * @param value The new value
+     */
+    void setBackground(double value) {
+    }
+
+    /**
+     * Returns the value of an entry.
+     *
+     * @param i Index of the first house
+     * @param j Index of the second house
+     * @return The value of (i, j) and (j, i)
+     */
+    abstract double get(int i, int j);
+
+    /**
+     * Sets the value of an entry in both directions.
+     *
+     * @param i     Index of the first house
+     * @param j     Index of the second house
+     * @param value The new value
+     */
+    abstract void set(int i, int j, double value);
+
+    /**
+     * Adds an amount to an entry in both directions.
+     *
+     * @param i      Index of the first house
+     * @param j      Index of the second house
+     * @param amount Amount to add
+     */
+    void add(int i, int j, double amount) {
+        set(i, j, get(i, j) + amount);
+    }
+
+    /**
+     * Reads the entries (i, from) to (i, from + count - 1) of a row.
+     *
+     * @param i     Index of the row
+     * @param from  First column
+     * @param count Number of entries
+     * @param out   Receives the entry (i, from + k) at [k]
+     */
+    void getRow(int i, int from, int count, double[] out) {
+        for (int k = 0; k < count; k++) {
+            out[k] = get(i, from + k);
+        }
+    }
+
+    /**
+     * Writes the entries (i, from) to (i, from + count - 1) of a row, in both directions.
+     *
+     * @param i     Index of the row
+     * @param from  First column
+     * @param count Number of entries
+     * @param row   The entry (i, from + k) is set to [k]
+     */
+    void setRow(int i, int from, int count, double[] row) {
+        for (int k = 0; k < count; k++) {
+            set(i, from + k, row[k]);
+        }
+    }
+
+    /**
+     * Reads scattered entries of a row and adds them up, the values are added in column order.
+     *
+     * @param i       Index of the row
+     * @param columns The columns to read
+     * @param count   Number of columns
+     * @param out     Receives the entry (i, columns[k]) at [k]
+     * @return The sum of the entries
+     */
+    double gatherRow(int i, int[] columns, int count, double[] out) {
+        double total = 0;
+        for (int k = 0; k < count; k++) {
+            double value = get(i, columns[k]);
+            out[k] = value;
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Reads the entries between a house and its candidates.
+     *
+     * @param i              Index of the house
+     * @param candidates     Flat candidate lists, the candidates of house i are stored at [i * candidateCount]
+     * @param candidateCount Number of candidates per house
+     * @param out            Receives the entry of the candidate at [i * candidateCount + c] at [c]
+     */
+    void getCandidateRow(int i, int[] candidates, int candidateCount, double[] out) {
+        int offset = i * candidateCount;
+        for (int c = 0; c < candidateCount; c++) {
+            out[c] = get(i, candidates[offset + c]);
+        }
+    }
+
+    /**
+     * Writes the entries between a house and its candidates, in both directions.
+     *
+     * @param i              Index of the house
+     * @param candidates     Flat candidate lists, the candidates of house i are stored at [i * candidateCount]
+     * @param candidateCount Number of candidates per house
+     * @param row            The entry of the candidate at [i * candidateCount + c] is set to [c]
+     */
+    void setCandidateRow(int i, int[] candidates, int candidateCount, double[] row) {
+        int offset = i * candidateCount;
+        for (int c = 0; c < candidateCount; c++) {
+            set(i, candidates[offset + c], row[c]);
+        }
+    }
+
+    /**
+     * Sets every entry to the same value.
+     *
+     * @param value The new value
+     */
+    abstract void fill(double value);
+
+    /**
+     * Multiplies every entry by the same factor.
+     *
+     * @param factor The factor
+     */
+    abstract void scale(double factor);
+
+    /**
+     * Limits every entry to the given range.
+     *
+     * @param min Lower limit
+     * @param max Upper limit
+     */
+    abstract void clamp(double min, double max);
+
+    /**
+     * Returns the number of entries the triangle layouts store, the upper triangle including the diagonal.
+     *
+     * @param size Number of houses
+     * @return n (n + 1) / 2
+     */
+    static long triangleLength(int size) {
+        return (long) size * (size + 1) / 2;
+    }
+
+    /**
+     * Computes where every row of the upper triangle starts, shifted so that entry (i, j) with i <= j
+     * is found at [starts[i] + j].
+     *
+     * @param size Number of houses
+     * @return The shifted row starts
+     */
+    static long[] rowStarts(int size) {
+        long[] starts = new long[size];
+        long start = 0;
+        for (int i = 0; i < size; i++) {
+            starts[i] = start - i;
+            start += size - i;
+        }
+        return starts;
+    }
+
+    /**
+     * Checks that a number of entries fits in a single Java array.
+     *
+     * @param length  Number of entries
+     * @param storage The storage that needs the array
+     * @return The length as an int
+     * @throws IllegalArgumentException if the entries do not fit
+     */
+    private static int arrayLength(long length, MatrixStorage storage) {
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new IllegalArgumentException(length + " entries do not fit in a " + storage
+                    + " matrix, use " + MatrixStorage.OFF_HEAP_FLOAT_TRIANGLE);
+        }
+        return (int) length;
+    }
+
+    /**
+     * Both halves of the matrix as doubles, (i, j) is stored at [i * size + j].
+     */
+    private static final class Full extends SymmetricMatrix {
+
+        /** The entries */
+        private final double[] values;
+
+        /**
+         * Constructs a full matrix.
+         *
+         * @param size Number of houses
+         */
+        Full(int size) {
+            super(size);
+            this.values = new double[arrayLength((long) size * size, MatrixStorage.FULL)];
+        }
+
+        @Override
+        double get(int i, int j) {
+            return values[i * size + j];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            values[i * size + j] = value;
+            values[j * size + i] = value;
+        }
+
+        @Override
+        void getRow(int i, int from, int count, double[] out) {
+            System.arraycopy(values, i * size + from, out, 0, count);
+        }
+
+        @Override
+        void setRow(int i, int from, int count, double[] row) {
+            System.arraycopy(row, 0, values, i * size + from, count);
+            for (int k = 0; k < count; k++) {
+                values[(from + k) * size + i] = row[k];
+            }
+        }
+
+        @Override
+        double gatherRow(int i, int[] columns, int count, double[] out) {
+            return Kernels.INSTANCE.gather(values, i * size, columns, count, out);
+        }
+
+        @Override
+        void fill(double value) {
+            Arrays.fill(values, value);
+        }
+
+        @Override
+        void scale(double factor) {
+            Kernels.INSTANCE.scale(values, factor);
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.min(max, Math.max(min, values[i]));
+            }
+        }
+    }
+
+    /**
+     * Upper triangle of the matrix as doubles.
+     */
+    private static final class DoubleTriangle extends SymmetricMatrix {
+
+        /** Shifted row starts, see {@link #rowStarts(int)} */
+        private final int[] starts;
+
+        /** The entries with i <= j */
+        private final double[] values;
+
+        /**
+         * Constructs a triangle matrix.
+         *
+         * @param size Number of houses
+         */
+        DoubleTriangle(int size) {
+            super(size);
+            this.values = new double[arrayLength(triangleLength(size), MatrixStorage.TRIANGLE)];
+            this.starts = Arrays.stream(rowStarts(size)).mapToInt(start -> (int) start).toArray();
+        }
+
+        @Override
+        double get(int i, int j) {
+            return i <= j ? values[starts[i] + j] : values[starts[j] + i];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            values[i <= j ? starts[i] + j : starts[j] + i] = value;
+        }
+
+        @Override
+        void getRow(int i, int from, int count, double[] out) {
+            if (from >= i) {
+                // The part of the row in the upper triangle is stored in one piece
+                System.arraycopy(values, starts[i] + from, out, 0, count);
+            } else {
+                super.getRow(i, from, count, out);
+            }
+        }
+
+        @Override
+        void setRow(int i, int from, int count, double[] row) {
+            if (from >= i) {
+                System.arraycopy(row, 0, values, starts[i] + from, count);
+            } else {
+                super.setRow(i, from, count, row);
+            }
+        }
+
+        @Override
+        void fill(double value) {
+            Arrays.fill(values, value);
+        }
+
+        @Override
+        void scale(double factor) {
+            Kernels.INSTANCE.scale(values, factor);
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.min(max, Math.max(min, values[i]));
+            }
+        }
+    }
+
+    /**
+     * Upper triangle of the matrix as floats.
+     */
+    private static final class FloatTriangle extends SymmetricMatrix {
+
+        /** Shifted row starts, see {@link #rowStarts(int)} */
+        private final int[] starts;
+
+        /** The entries with i <= j */
+        private final float[] values;
+
+        /**
+         * Constructs a float triangle matrix.
+         *
+         * @param size Number of houses
+         */
+        FloatTriangle(int size) {
+            super(size);
+            this.values = new float[arrayLength(triangleLength(size), MatrixStorage.FLOAT_TRIANGLE)];
+            this.starts = Arrays.stream(rowStarts(size)).mapToInt(start -> (int) start).toArray();
+        }
+
+        @Override
+        double get(int i, int j) {
+            return i <= j ? values[starts[i] + j] : values[starts[j] + i];
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            values[i <= j ? starts[i] + j : starts[j] + i] = (float) value;
+        }
+
+        @Override
+        void fill(double value) {
+            Arrays.fill(values, (float) value);
+        }
+
+        @Override
+        void scale(double factor) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (float) (values[i] * factor);
+            }
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = (float) Math.min(max, Math.max(min, values[i]));
+            }
+        }
+    }
+
+    /**
+     * Upper triangle of the matrix as floats in direct buffers of at most 2^28 entries each,
+     * so the triangle can hold more entries than a Java array.
+     * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+     */
+    private static final class OffHeapFloatTriangle extends SymmetricMatrix {
+
+        /** Number of bits of an entry index that address the entry within its chunk */
+        private static final int CHUNK_BITS = 28;
+
+        /** Mask that extracts the index within a chunk */
+        private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+        /** Shifted row starts, see {@link #rowStarts(int)} */
+        private final long[] starts;
+
+        /** The entries with i <= j, entry k is stored in chunk k >> CHUNK_BITS */
+        private final FloatBuffer[] chunks;
+
+        /**
+         * Constructs an off-heap float triangle matrix.
+         *
+         * @param size Number of houses
+         */
+        OffHeapFloatTriangle(int size) {
+            super(size);
+            this.starts = rowStarts(size);
+            long length = triangleLength(size);
+            this.chunks = new FloatBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int c = 0; c < chunks.length; c++) {
+                long entries = Math.min(CHUNK_MASK + 1, length - ((long) c << CHUNK_BITS));
+                chunks[c] = ByteBuffer.allocateDirect((int) entries * Float.BYTES)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        }
+
+        @Override
+        double get(int i, int j) {
+            long index = i <= j ? starts[i] + j : starts[j] + i;
+            return chunks[(int) (index >>> CHUNK_BITS)].get((int) (index & CHUNK_MASK));
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            long index = i <= j ? starts[i] + j : starts[j] + i;
+            chunks[(int) (index >>> CHUNK_BITS)].put((int) (index & CHUNK_MASK), (float) value);
+        }
+
+        @Override
+        void fill(double value) {
+            for (FloatBuffer chunk : chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, (float) value);
+                }
+            }
+        }
+
+        @Override
+        void scale(double factor) {
+            for (FloatBuffer chunk : chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, (float) (chunk.get(i) * factor));
+                }
+            }
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            for (FloatBuffer chunk : chunks) {
+                for (int i = 0; i < chunk.capacity(); i++) {
+                    chunk.put(i, (float) Math.min(max, Math.max(min, chunk.get(i))));
+                }
+            }
+        }
+    }
+
+    /**
+     * The entries between every house and its candidates as doubles, the entry of the candidate at
+     * [i * candidateCount + c] of the candidate lists is stored at the same position. A pair where each house is
+     * a candidate of the other is stored twice, and both copies are written together.
+     */
+    private static final class Candidates extends SymmetricMatrix {
+
+        /** Flat candidate lists, the candidates of house i are stored at [i * candidateCount] */
+        private final int[] candidates;
+
+        /** Number of candidates per house */
+        private final int candidateCount;
+
+        /** The entry of every candidate */
+        private final double[] values;
+
+        /** Position of the other copy of every entry, -1 if the pair is only stored once */
+        private final int[] mirrors;
+
+        /** The value of every pair that is not stored */
+        private double background;
+
+        /**
+         * Constructs a candidate matrix.
+         *
+         * @param size           Number of houses
+         * @param candidates     Flat candidate lists, the candidates of house i are stored at [i * candidateCount]
+         * @param candidateCount Number of candidates per house
+         */
+        Candidates(int size, int[] candidates, int candidateCount) {
+            super(size);
+            this.candidates = candidates;
+            this.candidateCount = candidateCount;
+            this.values = new double[arrayLength((long) size * candidateCount, MatrixStorage.FULL)];
+            this.mirrors = new int[values.length];
+            for (int i = 0; i < size; i++) {
+                for (int c = 0; c < candidateCount; c++) {
+                    int j = candidates[i * candidateCount + c];
+                    mirrors[i * candidateCount + c] = find(j, i);
+                }
+            }
+        }
+
+        /**
+         * Finds where a candidate is stored in the list of a house.
+         *
+         * @param i Index of the house
+         * @param j Index of the candidate
+         * @return The position of the entry, -1 if j is not a candidate of i
+         */
+        private int find(int i, int j) {
+            int offset = i * candidateCount;
+            for (int c = 0; c < candidateCount; c++) {
+                if (candidates[offset + c] == j) {
+                    return offset + c;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Finds where the entry of a pair is stored, in the list of either house.
+         *
+         * @param i Index of the first house
+         * @param j Index of the second house
+         * @return The position of the entry, -1 if it is not stored
+         */
+        private int position(int i, int j) {
+            int position = find(i, j);
+            return position >= 0 ? position : find(j, i);
+        }
+
+        @Override
+        double get(int i, int j) {
+            int position = position(i, j);
+            return position >= 0 ? values[position] : background;
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            int position = position(i, j);
+            if (position >= 0) {
+                values[position] = value;
+                if (mirrors[position] >= 0) {
+                    values[mirrors[position]] = value;
+                }
+            }
+        }
+
+        @Override
+        double background() {
+            return background;
+        }
+
+        @Override
+        void setBackground(double value) {
+            background = value;
+        }
+
+        @Override
+        void getCandidateRow(int i, int[] candidates, int candidateCount, double[] out) {
+            if (candidates == this.candidates) {
+                System.arraycopy(values, i * candidateCount, out, 0, candidateCount);
+            } else {
+                super.getCandidateRow(i, candidates, candidateCount, out);
+            }
+        }
+
+        @Override
+        void setCandidateRow(int i, int[] candidates, int candidateCount, double[] row) {
+            if (candidates == this.candidates) {
+                int offset = i * candidateCount;
+                for (int c = 0; c < candidateCount; c++) {
+                    values[offset + c] = row[c];
+                    if (mirrors[offset + c] >= 0) {
+                        values[mirrors[offset + c]] = row[c];
+                    }
+                }
+            } else {
+                super.setCandidateRow(i, candidates, candidateCount, row);
+            }
+        }
+
+        @Override
+        void fill(double value) {
+            Arrays.fill(values, value);
+            background = value;
+        }
+
+        @Override
+        void scale(double factor) {
+            Kernels.INSTANCE.scale(values, factor);
+            background *= factor;
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Math.min(max, Math.max(min, values[i]));
+            }
+            background = Math.min(max, Math.max(min, background));
+        }
+    }
+
+    /**
+     * A matrix scaled lazily, the value of (i, j) is factor * stored.get(i, j).
+     */
+    private static final class Scaled extends SymmetricMatrix {
+
+        /**
+         * Factor below which it is multiplied into the stored entries. The stored entries grow as the factor drops,
+         * and callers raise them to a power, so the factor is kept far from underflow and from the float range.
+         */
+        private static final double MIN_FACTOR = 1e-6;
+
+        /** The matrix that holds the entries divided by the factor */
+        private final SymmetricMatrix values;
+
+        /** The common factor of the entries */
+        private double factor = 1;
+
+        /**
+         * Wraps a matrix.
+         *
+         * @param values The matrix that holds the entries
+         */
+        Scaled(SymmetricMatrix values) {
+            super(values.size);
+            this.values = values;
+        }
+
+        @Override
+        SymmetricMatrix stored() {
+            return values;
+        }
+
+        @Override
+        double factor() {
+            return factor;
+        }
+
+        @Override
+        void restoreFactor(double factor) {
+            this.factor = factor;
+        }
+
+        @Override
+        double background() {
+            return factor * values.background();
+        }
+
+        @Override
+        void setBackground(double value) {
+            values.setBackground(value / factor);
+        }
+
+        @Override
+        double get(int i, int j) {
+            return factor * values.get(i, j);
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            values.set(i, j, value / factor);
+        }
+
+        @Override
+        void add(int i, int j, double amount) {
+            values.add(i, j, amount / factor);
+        }
+
+        @Override
+        void getRow(int i, int from, int count, double[] out) {
+            values.getRow(i, from, count, out);
+            for (int k = 0; k < count; k++) {
+                out[k] *= factor;
+            }
+        }
+
+        @Override
+        void getCandidateRow(int i, int[] candidates, int candidateCount, double[] out) {
+            values.getCandidateRow(i, candidates, candidateCount, out);
+            for (int c = 0; c < candidateCount; c++) {
+                out[c] *= factor;
+            }
+        }
+
+        @Override
+        void fill(double value) {
+            factor = 1;
+            values.fill(value);
+        }
+
+        @Override
+        void scale(double factor) {
+            this.factor *= factor;
+            if (this.factor < MIN_FACTOR) {
+                values.scale(this.factor);
+                this.factor = 1;
+            }
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            values.clamp(min / factor, max / factor);
+        }
+    }
+
+    /**
+     * Euclidean distances computed from the coordinates, no entries are stored.
+     */
+    private static final class Distances extends SymmetricMatrix {
+
+        /** The x-coordinates of the points */
+        private final double[] xs;
+
+        /** The y-coordinates of the points */
+        private final double[] ys;
+
+        /**
+         * Constructs a distance matrix over the given points.
+         *
+         * @param xs The x-coordinates of the points
+         * @param ys The y-coordinates of the points
+         */
+        Distances(double[] xs, double[] ys) {
+            super(xs.length);
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        @Override
+        double get(int i, int j) {
+            // Same formula as the stored distance matrices, so both give the same lengths
+            return Math.sqrt(Math.pow(xs[i] - xs[j], 2) + Math.pow(ys[i] - ys[j], 2));
+        }
+
+        @Override
+        void set(int i, int j, double value) {
+            throw new UnsupportedOperationException("Computed distances are read-only");
+        }
+
+        @Override
+        void fill(double value) {
+            throw new UnsupportedOperationException("Computed distances are read-only");
+        }
+
+        @Override
+        void scale(double factor) {
+            throw new UnsupportedOperationException("Computed distances are read-only");
+        }
+
+        @Override
+        void clamp(double min, double max) {
+            throw new UnsupportedOperationException("Computed distances are read-only");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Receives every improved tour of an anytime solver as soon as it is found.
+ */
+@FunctionalInterface
+public interface TourListener {
+
+    /**
+     * Called whenever the solver finds a tour shorter than every tour it published before,
+     * on one of the threads that run the solver.
+     *
+     * @param tour   The tour as house indices, a copy the listener may keep
+     * @param length The length of the tour
+     */
+    void improved(int[] tour, double length);
+}
@@ -1,5 +1,5 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -33,26 +33,36 @@ public class YukselEgeBoyaci {
      * and visualizes the result.
      *
      * @param args Command line arguments (not used)
-     * @throws FileNotFoundException If the input file is not found
      */
-    public static void main(String[] args) throws FileNotFoundException {
+    public static void main(String[] args) {
 
         // Enable double buffering for smoother graphics
         StdDraw.enableDoubleBuffering();
 
-        // File name containing coordinates of houses (change as needed)
+        // File name containing coordinates of houses (change as needed),
+        // x,y lines, a TSPLIB .tsp file or a binary file written by Coordinates.writeBinary
         String fileName = "input05.txt";
 
         // Read coordinates of houses from file
         readFile(fileName);
 
-        // Choose the method to solve TSP (1 for Brute-Force, 2 for Ant Colony Optimization)
+        // Choose the method to solve TSP
+        // (1 for Brute-Force, 2 for Ant Colony Optimization, 3 for Held-Karp, 4 for Branch and Bound,
+        // 5 for Spatial Decomposition, 6 for Simulated Annealing)
         int chosenMethod = 2;
 
         if (chosenMethod == 1) {
             bruteForce(); // Solve TSP using Brute-Force method
         } else if (chosenMethod == 2) {
             antColonyOptimization(); // Solve TSP using Ant Colony Optimization method
+        } else if (chosenMethod == 3) {
+            heldKarp(); // Solve TSP using Held-Karp dynamic programming
+        } else if (chosenMethod == 4) {
+            branchAndBound(); // Solve TSP using Branch and Bound method
+        } else if (chosenMethod == 5) {
+            spatialDecomposition(); // Solve TSP by solving clusters of houses and joining their tours
+        } else if (chosenMethod == 6) {
+            simulatedAnnealing(); // Solve TSP using parallel tempering simulated annealing
         } else {
             System.out.println("Value for Chosen Method is invalid");
         }
@@ -65,37 +75,14 @@ public class YukselEgeBoyaci {
         // Various parameters for the Ant Colony Optimization algorithm
         int chosenMap = 1; // Choose between Shortest Distance Map and Pheromone Map
         long startTime = System.currentTimeMillis();
-        double[][] pheromones = new double[houses.size()][houses.size()];
-        // Initialize pheromone levels
-        for (double[] pheromone : pheromones) {
-            Arrays.fill(pheromone, 0.1);
-        }
-        // Define algorithm parameters
-        int iterationCount = 100; // Number of iterations
-        int antCountPerIteration = 50; // Number of ants per iteration
-        double degradationFactor = 0.92; // Evaporation rate 
-        double alpha = 1.8; // Parameter controlling influence of pheromones
-        double beta = 2.5; // Parameter controlling influence of distance
-        double Q = 0.0001; // Q value for updating pheromone levels
-        Random rng = new Random();
-
-        // Iterations of the Ant Colony Optimization algorithm
-        for (int iteration = 0; iteration < iterationCount; iteration++) {
-            for (int ant = 0; ant < antCountPerIteration; ant++) {
-                // Construct path for each ant
-                ArrayList<House> antPath = constructAntPath(houses, pheromones, alpha, beta, rng);
-                double distance = calculatePathDistance(antPath);
-                // Update best path if shorter path is found
-                if (distance < bestDistance) {
-                    bestDistance = distance;
-                    bestPath = antPath;
-                }
-                // Update pheromone levels based on ant path
-                updatePheromones(pheromones, antPath, Q);
-            }
-            // Evaporate pheromone levels
-            evaporatePheromones(pheromones, degradationFactor);
-        }
+        // Define algorithm parameters, the defaults and their meaning are listed in SolverConfig
+        SolverConfig config = new SolverConfig();
+
+        // Precompute distances and heuristics, initialize pheromone levels and run the iterations
+        AcoSolver solver = new AcoSolver(houses, config);
+        int[] bestTour = solver.solve();
+        bestDistance = solver.bestLength;
+        bestPath = AntColony.toHouses(bestTour, houses);
 
         // Record end time and calculate total time taken
         long endTime = System.currentTimeMillis();
@@ -106,13 +93,25 @@ public class YukselEgeBoyaci {
 
         // Print results to console
         System.out.println("Method: Ant Colony Optimization Method");
+        if (solver.monitor.stopReason() != null) {
+            System.out.println("Stopped after " + solver.monitor.iterations() + " iterations: "
+                    + solver.monitor.stopReason());
+        }
         consoleOutput(totalTime);
+        if (config.telemetryFile != null) {
+            try {
+                solver.monitor.export(Path.of(config.telemetryFile));
+            } catch (IOException e) {
+                System.out.println("An error occurred while writing the telemetry file.");
+                e.printStackTrace();
+            }
+        }
 
         // Draw map based on chosen map type
         if (chosenMap == 1) {
             drawShortestMap();
         } else if (chosenMap == 2) {
-            drawPheromoneMap(pheromones);
+            drawPheromoneMap(solver.colony);
         } else {
             System.out.println("Value for Chosen Map is invalid");
         }
@@ -120,123 +119,117 @@ public class YukselEgeBoyaci {
 
 
     /**
-     * Helper method for the Ant Colony Optimization
-     * Constructs a path for an ant using the Ant Colony Optimization method.
-     *
-     * @param houses     List of houses
-     * @param pheromones Pheromone matrix
-     * @param alpha      Parameter for controlling the influence of pheromones
-     * @param beta       Parameter for controlling the influence of distance
-     * @param random     Random number generator
-     * @return An ArrayList representing the path of the ant
+     * Solves the TSP using the brute-force method.
      */
-    private static ArrayList<House> constructAntPath(ArrayList<House> houses, double[][] pheromones,
-                                                     double alpha, double beta, Random random) {
-        ArrayList<House> antPath = new ArrayList<>();
-        ArrayList<House> remainingHouses = new ArrayList<>(houses);
-        // Choose a random starting house for the ant
-        House currentHouse = remainingHouses.remove(random.nextInt(remainingHouses.size()));
-        antPath.add(currentHouse);
-
-        // Construct the ant's path by selecting the next house based on pheromone levels and distances
-        while (!remainingHouses.isEmpty()) {
-            House nextHouse = selectNextHouse(currentHouse, remainingHouses, pheromones, alpha, beta, random);
-            antPath.add(nextHouse);
-            remainingHouses.remove(nextHouse);
-            currentHouse = nextHouse;
-        }
+    public static void bruteForce() {
+        // Record start time
+        long startTime = System.currentTimeMillis();
+
+        // Enumerate all tours over the flat distance matrix of the houses
+        BruteForce solver = new BruteForce(houses.size(), AntColony.distanceMatrix(houses));
+        int[] tour = solver.solve();
+        bestDistance = solver.bestLength;
+        bestPath = AntColony.toHouses(tour, houses);
 
-        return antPath;
+        // Record end time and calculate total time taken
+        long endTime = System.currentTimeMillis();
+        double totalTime = (endTime - startTime) / 1000.0;
+
+        // Reorder the best path
+        reorderPath();
+
+        // Print results to console
+        System.out.println("Method: Brute-Force Method");
+        consoleOutput(totalTime);
+
+        // Draw map showing shortest path
+        drawShortestMap();
     }
 
     /**
-     * Helper method for the Ant Colony Optimization
-     * Selects the next house for an ant to visit using the Ant Colony Optimization method.
-     *
-     * @param currentHouse    The current house
-     * @param remainingHouses List of remaining houses to visit
-     * @param pheromones      Pheromone matrix
-     * @param alpha           Parameter for controlling the influence of pheromones
-     * @param beta            Parameter for controlling the influence of distance
-     * @param random          Random number generator
-     * @return The next house to visit
+     * Solves the TSP exactly using Held-Karp dynamic programming over subsets of houses.
+     * Finds the same optimal tour as the brute-force method in O(2^n n^2) time instead of O(n!).
      */
-    private static House selectNextHouse(House currentHouse, ArrayList<House> remainingHouses,
-                                         double[][] pheromones, double alpha, double beta, Random random) {
-        double totalProbability = 0;
-        double[] probabilities = new double[remainingHouses.size()];
-
-        // Calculate probabilities for selecting each remaining house based on pheromone levels and distances
-        for (int i = 0; i < remainingHouses.size(); i++) {
-            House nextHouse = remainingHouses.get(i);
-            double pheromone = Math.pow(pheromones[houses.indexOf(currentHouse)][houses.indexOf(nextHouse)], alpha);
-            double distance = 1 / Math.pow(distance(currentHouse, nextHouse), beta);
-            double probability = pheromone * distance;
-            probabilities[i] = probability;
-            totalProbability += probability;
+    public static void heldKarp() {
+        // Skip the distance matrix of maps that are far too large
+        int maxSize = HeldKarp.maxSize();
+        if (houses.size() > maxSize) {
+            System.out.println(HeldKarp.tooLargeMessage(houses.size(), maxSize));
+            return;
         }
+        // Record start time
+        long startTime = System.currentTimeMillis();
 
-        // Choose the next house based on the calculated probabilities
-        double randomProbability = random.nextDouble(0, totalProbability);
-        double probability = 0;
-        for (int i = 0; i < probabilities.length; i++) {
-            probability += probabilities[i];
-            if (randomProbability <= probability) {
-                return remainingHouses.get(i);
-            }
+        // Solve over the flat distance matrix of the houses
+        HeldKarp solver = new HeldKarp(houses.size(), AntColony.distanceMatrix(houses));
+        int[] tour;
+        try {
+            tour = solver.solve();
+        } catch (IllegalArgumentException e) {
+            // The solver checks the heap again, which may have shrunk since the check above
+            System.out.println(e.getMessage());
+            return;
         }
-        // If no house is selected based on probabilities, return the last remaining house
-        return remainingHouses.getLast();
-    }
+        bestDistance = solver.bestLength;
+        bestPath = AntColony.toHouses(tour, houses);
 
-    /**
-     * Helper method for the Ant Colony Optimization
-     * Updates the pheromone levels on the edges of the graph based on the given path.
-     *
-     * @param pheromones Pheromone matrix
-     * @param path       The path taken by an ant
-     * @param Q          Q value
-     */
-    private static void updatePheromones(double[][] pheromones, ArrayList<House> path, double Q) {
-        double pheromoneDelta = Q / calculatePathDistance(path);
-        // Update pheromone levels on edges of the graph based on the given path
-        for (int i = 0; i < path.size() - 1; i++) {
-            int fromIndex = houses.indexOf(path.get(i));
-            int toIndex = houses.indexOf(path.get(i + 1));
-            pheromones[fromIndex][toIndex] += pheromoneDelta;
-            pheromones[toIndex][fromIndex] = pheromones[fromIndex][toIndex];
-        }
+        // Record end time and calculate total time taken
+        long endTime = System.currentTimeMillis();
+        double totalTime = (endTime - startTime) / 1000.0;
+
+        // Reorder the best path
+        reorderPath();
+
+        // Print results to console
+        System.out.println("Method: Held-Karp Method");
+        consoleOutput(totalTime);
+
+        // Draw map showing shortest path
+        drawShortestMap();
     }
 
     /**
-     * Helper method for the Ant Colony Optimization
-     * Evaporates the pheromone levels on all edges of the graph.
-     *
-     * @param pheromones        Pheromone matrix
-     * @param degradationFactor Factor by which the pheromones evaporate
+     * Solves the TSP exactly using branch and bound with 1-tree lower bounds.
+     * Prunes most of the orderings the brute-force method enumerates, which makes instances of 30+ houses practical.
      */
-    private static void evaporatePheromones(double[][] pheromones, double degradationFactor) {
-        // Evaporate pheromone levels on all edges of the graph by the given degradation factor
-        for (int i = 0; i < pheromones.length; i++) {
-            for (int j = 0; j < pheromones[i].length; j++) {
-                pheromones[i][j] *= degradationFactor;
-            }
-        }
-    }
+    public static void branchAndBound() {
+        // Record start time
+        long startTime = System.currentTimeMillis();
+
+        // Search over the flat distance matrix of the houses
+        BranchAndBound solver = new BranchAndBound(houses.size(), AntColony.distanceMatrix(houses));
+        int[] tour = solver.solve();
+        bestPath = AntColony.toHouses(tour, houses);
+        bestDistance = calculatePathDistance(bestPath);
+
+        // Record end time and calculate total time taken
+        long endTime = System.currentTimeMillis();
+        double totalTime = (endTime - startTime) / 1000.0;
 
+        // Reorder the best path
+        reorderPath();
 
+        // Print results to console
+        System.out.println("Method: Branch and Bound Method");
+        consoleOutput(totalTime);
+
+        // Draw map showing shortest path
+        drawShortestMap();
+    }
 
     /**
-     * Solves the TSP using the brute-force method.
+     * Solves the TSP by splitting the map into clusters, solving every cluster with Ant Colony Optimization
+     * and joining the cluster tours, for maps with far more houses than a single colony can handle.
      */
-    public static void bruteForce() {
+    public static void spatialDecomposition() {
         // Record start time
         long startTime = System.currentTimeMillis();
 
-        // Convert list of houses to array for permutation
-        House[] houseArray = houses.toArray(new House[houses.size()]);
-        // Generate all permutations of houses and calculate distances for each permutation
-        permute(houseArray, 2);
+        // Split, solve the clusters in parallel, stitch and repair
+        SpatialDecomposition solver = new SpatialDecomposition(houses, new SolverConfig());
+        int[] tour = solver.solve();
+        bestDistance = solver.bestLength;
+        bestPath = AntColony.toHouses(tour, houses);
 
         // Record end time and calculate total time taken
         long endTime = System.currentTimeMillis();
@@ -246,7 +239,7 @@ public class YukselEgeBoyaci {
         reorderPath();
 
         // Print results to console
-        System.out.println("Method: Brute-Force Method");
+        System.out.println("Method: Spatial Decomposition Method (" + solver.clusterCount + " clusters)");
         consoleOutput(totalTime);
 
         // Draw map showing shortest path
@@ -254,61 +247,49 @@ public class YukselEgeBoyaci {
     }
 
     /**
-     * Helper method for the Brute-Force Method
-     * Generates all permutations of the given array and calculates the distance for each permutation.
-     * Updates the best path if a shorter path is found.
-     *
-     * @param houseArray The array to generate permutations for
-     * @param k          The current index
+     * Solves the TSP using simulated annealing with 2-opt and Or-opt moves, run as parallel tempering:
+     * replicas at different temperatures on their own threads that swap their tours from time to time.
      */
-    private static void permute(House[] houseArray, int k) {
-        if (k == houseArray.length) {
-            // Calculate distance for the current permutation
-            double distance = calculatePathDistance(new ArrayList<>(Arrays.asList(houseArray)));
-            // Update best path if shorter path is found
-            if (distance < bestDistance) {
-                bestDistance = distance;
-                bestPath.clear();
-                bestPath.addAll(Arrays.asList(houseArray));
-            }
-        } else {
-            for (int i = k; i < houseArray.length; i++) {
-                // Swap elements at indices k and i
-                House temp = houseArray[i];
-                houseArray[i] = houseArray[k];
-                houseArray[k] = temp;
-                // Recursively generate permutations for the remaining elements
-                permute(houseArray, k + 1);
-                // Restore original order for backtracking
-                temp = houseArray[k];
-                houseArray[k] = houseArray[i];
-                houseArray[i] = temp;
-            }
-        }
+    public static void simulatedAnnealing() {
+        // Record start time
+        long startTime = System.currentTimeMillis();
+
+        // Anneal the replicas from a greedy tour, the parameters are listed in SolverConfig
+        ParallelTempering solver = new ParallelTempering(houses, new SolverConfig());
+        int[] tour = solver.solve();
+        bestDistance = solver.bestLength;
+        bestPath = AntColony.toHouses(tour, houses);
+
+        // Record end time and calculate total time taken
+        long endTime = System.currentTimeMillis();
+        double totalTime = (endTime - startTime) / 1000.0;
+
+        // Reorder the best path
+        reorderPath();
+
+        // Print results to console
+        System.out.println("Method: Simulated Annealing Method (" + solver.temperatures.length + " replicas, "
+                + solver.exchangesAccepted + " of " + solver.exchangesTried + " exchanges accepted)");
+        consoleOutput(totalTime);
+
+        // Draw map showing shortest path
+        drawShortestMap();
     }
 
     /**
      * Reads coordinates of houses from a file and creates the 'houses' arrayList.
      *
      * @param fileName The name of the file to read from
-     * @throws FileNotFoundException If the specified file is not found
      */
-    private static void readFile(String fileName) throws FileNotFoundException {
+    private static void readFile(String fileName) {
         try {
-            File file = new File(fileName);
-            Scanner inputFile = new Scanner(file);
-            int houseNumber = 1;
-            // Read coordinates from each line and create House objects
-            while (inputFile.hasNextLine()) {
-                String[] line = inputFile.nextLine().split(",");
-                double x = Double.parseDouble(line[0]);
-                double y = Double.parseDouble(line[1]);
-                House house = new House(x, y, houseNumber);
-                houses.add(house);
-                houseNumber++;
+            Coordinates coordinates = Coordinates.read(Path.of(fileName));
+            houses.ensureCapacity(coordinates.size());
+            // Create a House object for every coordinate pair, numbered from 1 in file order
+            for (int i = 0; i < coordinates.size(); i++) {
+                houses.add(new House(coordinates.xs[i], coordinates.ys[i], i + 1));
             }
-            inputFile.close();
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             System.out.println("An error occurred while reading the file.");
             e.printStackTrace();
         }
@@ -409,18 +390,18 @@ public class YukselEgeBoyaci {
     /**
      * Draws the pheromone map using StdDraw library.
      *
-     * @param pheromones Pheromone matrix
+     * @param colony Colony holding the pheromone matrix
      */
-    private static void drawPheromoneMap(double[][] pheromones) {
+    private static void drawPheromoneMap(AntColony colony) {
         // Set up canvas for drawing
         StdDraw.setCanvasSize(800, 800);
         StdDraw.setXscale(0, 1);
         StdDraw.setYscale(0, 1);
 
-        // Draw lines representing pheromone trails
+        // Draw lines representing pheromone trails, every pair of houses once
         for (int i = 0; i < houses.size(); i++) {
-            for (int j = 0; j < houses.size(); j++) {
-                StdDraw.setPenRadius(pheromones[i][j]);
+            for (int j = i + 1; j < houses.size(); j++) {
+                StdDraw.setPenRadius(colony.pheromone(i, j));
                 // Draw line between houses with thickness proportional to pheromone level
                 StdDraw.line(houses.get(i).x, houses.get(i).y, houses.get(j).x, houses.get(j).y);
             }
@@ -451,32 +432,3 @@ public class YukselEgeBoyaci {
         }
     }
 }
-
-/**
- * Represents a house with coordinates (x, y) and a house number.
- */
-class House {
-
-    /** The x-coordinate of the house */
-    public double x;
-
-    /** The y-coordinate of the house */
-    public double y;
-
-    /** The number of the house */
-    public int number;
-
-    /**
-     * Constructs a house with the given coordinates and number.
-     * @param x The x-coordinate of the house
-     * @param y The y-coordinate of the house
-     * @param number The number of the house
-     */
-    House(double x, double y, int number) {
-        this.x = x;
-        this.y = y;
-        this.number = number;
-    }
-}
-
-